@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2014 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HybridBinarizer, which DecodeHandler uses, against GlobalHistogramBinarizer on the framing
+ * rect crop. The 2D readers ask for the whole matrix; the 1D readers only ask for a few rows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinarizerBenchmark {
+
+  // As many rows as OneDReader looks at when it isn't trying harder
+  private static final int ROWS = 15;
+
+  @Param({"640x480", "1280x720", "1920x1080"})
+  public String previewSize;
+
+  @Param({"QR_CODE", "CODE_128"})
+  public String fixture;
+
+  @Param({"90"})
+  public int rotation;
+
+  @Param({"hybrid", "globalHistogram"})
+  public String binarizer;
+
+  private LuminanceSource source;
+  private BitArray row;
+
+  @Setup
+  public void setUp() throws IOException {
+    source = Fixtures.load(fixture, previewSize, rotation).framingRect();
+    row = new BitArray(source.getWidth());
+  }
+
+  @Benchmark
+  public BitMatrix blackMatrix() throws NotFoundException {
+    return newBinarizer().getBlackMatrix();
+  }
+
+  /**
+   * HybridBinarizer inherits its rows from GlobalHistogramBinarizer, so the two only differ in
+   * what the constructor costs.
+   */
+  @Benchmark
+  public BitArray blackRows() {
+    Binarizer theBinarizer = newBinarizer();
+    int height = source.getHeight();
+    int rowStep = Math.max(1, height / (ROWS * 2));
+    int middle = height / 2;
+    for (int x = 0; x < ROWS; x++) {
+      int offset = rowStep * ((x + 1) / 2);
+      int y = (x & 1) == 0 ? middle + offset : middle - offset;
+      try {
+        row = theBinarizer.getBlackRow(y, row);
+      } catch (NotFoundException nfe) {
+        // A row with no contrast, which OneDReader skips as well
+      }
+    }
+    return row;
+  }
+
+  private Binarizer newBinarizer() {
+    // A new one every time, as DecodeHandler makes one per frame
+    return "hybrid".equals(binarizer) ? new HybridBinarizer(source) : new GlobalHistogramBinarizer(source);
+  }
+
+}
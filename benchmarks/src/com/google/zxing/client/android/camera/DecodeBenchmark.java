@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2014 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One pass of DecodeHandler.decode: the framing rect source, HybridBinarizer and
+ * MultiFormatReader.decodeWithState with the formats DecodeThread would enable. The "NONE"
+ * fixture measures a frame without a barcode, which is what most frames are while scanning.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+
+  @Param({"640x480", "1280x720", "1920x1080"})
+  public String previewSize;
+
+  @Param({"QR_CODE", "CODE_128", "EAN_13", "PDF_417", Fixtures.NONE})
+  public String fixture;
+
+  @Param({"default", "all", "1d", "qr"})
+  public String hints;
+
+  @Param({"90"})
+  public int rotation;
+
+  private Fixtures.Frame frame;
+  private final MultiFormatReader reader = new MultiFormatReader();
+
+  @Setup
+  public void setUp() throws IOException {
+    frame = Fixtures.load(fixture, previewSize, rotation);
+    Map<DecodeHintType, Object> decodeHints = Fixtures.decodeHints(hints);
+    reader.setHints(decodeHints);
+    if (Fixtures.isSynthetic(fixture) && !Fixtures.NONE.equals(fixture) &&
+        ((Collection<?>) decodeHints.get(DecodeHintType.POSSIBLE_FORMATS)).contains(BarcodeFormat.valueOf(fixture)) &&
+        decode() == null) {
+      // Don't let a broken fixture pass for a slow failure
+      throw new IllegalStateException("Fixture " + fixture + " at " + previewSize + " does not decode");
+    }
+  }
+
+  @Benchmark
+  public Result decode() {
+    BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(frame.framingRect()));
+    try {
+      return reader.decodeWithState(bitmap);
+    } catch (ReaderException re) {
+      return null;
+    } finally {
+      reader.reset();
+    }
+  }
+
+}
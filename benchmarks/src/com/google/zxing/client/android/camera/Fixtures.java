@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2014 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import zxing.library.BarcodeEncoder;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Preview frames for the benchmarks. A fixture is either the name of a barcode format, which
+ * draws a synthetic frame with that barcode in the framing rect, "NONE" for a frame with no
+ * barcode at all, or the path of a recording made with {@link FrameRecorder}, whose first frame
+ * is used.
+ *
+ * <p>Synthetic frames are slightly blurred and noisy, like a camera's, and are drawn so that they
+ * come out upright once rotated.</p>
+ */
+final class Fixtures {
+
+  static final String NONE = "NONE";
+
+  // The format sets DecodeThread builds from the preferences, as in DecodeFormatManager
+  private static final Set<BarcodeFormat> PRODUCT_FORMATS = EnumSet.of(BarcodeFormat.UPC_A,
+      BarcodeFormat.UPC_E, BarcodeFormat.EAN_13, BarcodeFormat.EAN_8, BarcodeFormat.RSS_14,
+      BarcodeFormat.RSS_EXPANDED);
+  private static final Set<BarcodeFormat> INDUSTRIAL_FORMATS = EnumSet.of(BarcodeFormat.CODE_39,
+      BarcodeFormat.CODE_93, BarcodeFormat.CODE_128, BarcodeFormat.ITF, BarcodeFormat.CODABAR);
+
+  private Fixtures() {
+  }
+
+  /**
+   * A preview frame, and the framing rect within it in rotated coordinates.
+   */
+  static final class Frame {
+
+    final byte[] data;
+    final int dataWidth;
+    final int dataHeight;
+    final int rotation;
+    final int left;
+    final int top;
+    final int width;
+    final int height;
+
+    Frame(byte[] data, int dataWidth, int dataHeight, int rotation) {
+      this.data = data;
+      this.dataWidth = dataWidth;
+      this.dataHeight = dataHeight;
+      this.rotation = rotation;
+      // As CameraManager.getFramingRect places it on a screen the size of the preview
+      int rotatedWidth = LuminanceRotator.rotatedWidth(dataWidth, dataHeight, rotation);
+      int rotatedHeight = LuminanceRotator.rotatedHeight(dataWidth, dataHeight, rotation);
+      int frameWidth = Math.max(40, Math.min(1200, rotatedWidth * 3 / 4));
+      int frameHeight = Math.max(40, Math.min(675, rotatedHeight * 3 / 4));
+      this.width = frameWidth;
+      this.height = Math.min(frameWidth, frameHeight);
+      this.left = (rotatedWidth - width) / 2;
+      this.top = (rotatedHeight - height) / 2;
+    }
+
+    RotatedYUVLuminanceSource framingRect() {
+      return new RotatedYUVLuminanceSource(data, dataWidth, dataHeight, rotation, left, top, width,
+          height);
+    }
+
+  }
+
+  /**
+   * @param previewSize For synthetic frames, the camera's preview size, like "1280x720".
+   * @param rotation The clockwise rotation the frame is decoded with.
+   */
+  static Frame load(String fixture, String previewSize, int rotation) throws IOException {
+    if (!isSynthetic(fixture)) {
+      return loadRecorded(fixture, rotation);
+    }
+    int x = previewSize.indexOf('x');
+    int dataWidth = Integer.parseInt(previewSize.substring(0, x));
+    int dataHeight = Integer.parseInt(previewSize.substring(x + 1));
+    return synthetic(NONE.equals(fixture) ? null : BarcodeFormat.valueOf(fixture), dataWidth,
+        dataHeight, rotation);
+  }
+
+  static boolean isSynthetic(String fixture) {
+    return !fixture.endsWith(".nv21");
+  }
+
+  /**
+   * @param hintSet "default" for what DecodeThread enables out of the box (1D product and
+   *  industrial, QR Code, Data Matrix), "all" to add Aztec and PDF417 as the preferences allow,
+   *  "1d" for the 1D formats alone, or "qr" for QR Code alone.
+   */
+  static Map<DecodeHintType, Object> decodeHints(String hintSet) {
+    Set<BarcodeFormat> formats = EnumSet.noneOf(BarcodeFormat.class);
+    if ("qr".equals(hintSet)) {
+      formats.add(BarcodeFormat.QR_CODE);
+    } else {
+      formats.addAll(PRODUCT_FORMATS);
+      formats.addAll(INDUSTRIAL_FORMATS);
+      if (!"1d".equals(hintSet)) {
+        formats.add(BarcodeFormat.QR_CODE);
+        formats.add(BarcodeFormat.DATA_MATRIX);
+      }
+      if ("all".equals(hintSet)) {
+        formats.add(BarcodeFormat.AZTEC);
+        formats.add(BarcodeFormat.PDF_417);
+      }
+    }
+    Map<DecodeHintType, Object> hints = new EnumMap<DecodeHintType, Object>(DecodeHintType.class);
+    hints.put(DecodeHintType.POSSIBLE_FORMATS, formats);
+    return hints;
+  }
+
+  /**
+   * Contents which every format {@link BarcodeEncoder} supports can take.
+   */
+  static String contentsFor(BarcodeFormat format) {
+    switch (format) {
+      case EAN_8:
+        return "96385074";
+      case EAN_13:
+        return "5901234123457";
+      case UPC_A:
+        return "036000291452";
+      case CODE_39:
+        return "ZXING-0042";
+      case CODE_128:
+        // All digits, which Code 128 packs two to a symbol, as on most shipping labels
+        return "00123456780042";
+      default:
+        return "ZXING-BENCHMARK-0042";
+    }
+  }
+
+  private static Frame loadRecorded(String path, int rotation) throws IOException {
+    DataInputStream in = new DataInputStream(new FileInputStream(path));
+    try {
+      if (in.readInt() != FrameRecorder.MAGIC || in.readInt() != FrameRecorder.VERSION) {
+        throw new IOException("Not a frame recording: " + path);
+      }
+      int dataWidth = in.readInt();
+      int dataHeight = in.readInt();
+      byte[] data = new byte[FrameRecorder.frameSize(dataWidth, dataHeight)];
+      in.readFully(data);
+      return new Frame(data, dataWidth, dataHeight, rotation);
+    } finally {
+      in.close();
+    }
+  }
+
+  private static Frame synthetic(BarcodeFormat format, int dataWidth, int dataHeight, int rotation) {
+    Random random = new Random(0xCAFE);
+    byte[] data = new byte[FrameRecorder.frameSize(dataWidth, dataHeight)];
+    Frame frame = new Frame(data, dataWidth, dataHeight, rotation);
+    int rotatedWidth = LuminanceRotator.rotatedWidth(dataWidth, dataHeight, rotation);
+    int rotatedHeight = LuminanceRotator.rotatedHeight(dataWidth, dataHeight, rotation);
+
+    // Draw upright first: a grey background with the barcode in the middle of the framing rect
+    int[] upright = new int[rotatedWidth * rotatedHeight];
+    for (int i = 0; i < upright.length; i++) {
+      upright[i] = 165 + random.nextInt(10);
+    }
+    if (format != null) {
+      BitMatrix barcode = encode(format, frame.width * 3 / 4, frame.height * 3 / 4);
+      int barcodeLeft = frame.left + (frame.width - barcode.getWidth()) / 2;
+      int barcodeTop = frame.top + (frame.height - barcode.getHeight()) / 2;
+      for (int y = 0; y < barcode.getHeight(); y++) {
+        for (int x = 0; x < barcode.getWidth(); x++) {
+          upright[(barcodeTop + y) * rotatedWidth + barcodeLeft + x] = barcode.get(x, y) ? 40 : 210;
+        }
+      }
+    }
+
+    // Soften it as a lens would, add sensor noise, and lay it into the frame rotated back
+    for (int y = 0; y < rotatedHeight; y++) {
+      for (int x = 0; x < rotatedWidth; x++) {
+        int sum = 0;
+        for (int dy = -1; dy <= 1; dy++) {
+          int row = Math.min(rotatedHeight - 1, Math.max(0, y + dy)) * rotatedWidth;
+          for (int dx = -1; dx <= 1; dx++) {
+            sum += upright[row + Math.min(rotatedWidth - 1, Math.max(0, x + dx))];
+          }
+        }
+        int luminance = Math.min(255, Math.max(0, sum / 9 + random.nextInt(9) - 4));
+        data[LuminanceRotator.offsetOf(dataWidth, dataHeight, rotation, x, y)] = (byte) luminance;
+      }
+    }
+    for (int i = dataWidth * dataHeight; i < data.length; i++) {
+      data[i] = (byte) 128;
+    }
+    return frame;
+  }
+
+  private static BitMatrix encode(BarcodeFormat format, int width, int height) {
+    Map<EncodeHintType, Object> hints = new EnumMap<EncodeHintType, Object>(EncodeHintType.class);
+    hints.put(EncodeHintType.MARGIN, 2);
+    if (format != BarcodeFormat.QR_CODE && format != BarcodeFormat.PDF_417) {
+      // A 1D code doesn't need to be tall to be found
+      height /= 2;
+    }
+    try {
+      BitMatrix barcode = BarcodeEncoder.encode(format, contentsFor(format), width, height, hints);
+      if (barcode == null) {
+        throw new IllegalArgumentException("Can't generate " + format);
+      }
+      return barcode;
+    } catch (WriterException we) {
+      throw new IllegalArgumentException(we);
+    }
+  }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2014 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.ReaderException;
+import zxing.library.AdaptiveFormatReader;
+import zxing.library.BinarizerStrategy;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a recording made with {@link FrameRecorder} through the steps a decode worker takes on the
+ * device with the default options, and prints throughput and latency: the framing rect cropped
+ * and turned upright as CameraManager places it on a screen the size of the preview, the
+ * binarizer {@link BinarizerStrategy} picks, and {@link AdaptiveFormatReader} with the formats
+ * DecodeThread enables. Region tracking, pyramid decoding, skipping blurred frames and
+ * continuous scanning are not replayed. For example:
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.google.zxing.client.android.camera.FrameReplay \
+ *     --fps 30 --rotation 90 --workers 2 frames.nv21
+ * </pre>
+ *
+ * <p>Without --fps every frame is decoded as fast as the workers can take them.</p>
+ */
+public final class FrameReplay {
+
+  private static final Object END = new Object();
+
+  private FrameReplay() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    float fps = 0.0f;
+    int rotation = 0;
+    int workers = 1;
+    File recording = null;
+    for (int i = 0; i < args.length; i++) {
+      if ("--fps".equals(args[i])) {
+        fps = Float.parseFloat(args[++i]);
+      } else if ("--rotation".equals(args[i])) {
+        rotation = Integer.parseInt(args[++i]);
+      } else if ("--workers".equals(args[i])) {
+        workers = Integer.parseInt(args[++i]);
+      } else {
+        recording = new File(args[i]);
+      }
+    }
+    if (recording == null) {
+      System.err.println("Usage: FrameReplay [--fps N] [--rotation 0|90|180|270] [--workers N] recording");
+      System.exit(1);
+    }
+
+    RecordedFrameSource source = new RecordedFrameSource(recording, fps, false, workers + 1);
+    Worker[] threads = new Worker[workers];
+    for (int i = 0; i < workers; i++) {
+      threads[i] = new Worker(source, rotation);
+    }
+    long start = System.nanoTime();
+    source.start();
+    for (Worker thread : threads) {
+      thread.start();
+    }
+    source.awaitEnd();
+    for (Worker thread : threads) {
+      thread.finish();
+    }
+    long elapsed = System.nanoTime() - start;
+    source.close();
+
+    int frames = 0;
+    int found = 0;
+    long[] waits = new long[0];
+    long[] decodes = new long[0];
+    for (Worker thread : threads) {
+      frames += thread.frames;
+      found += thread.found;
+      waits = concat(waits, thread.waits, thread.frames);
+      decodes = concat(decodes, thread.decodes, thread.frames);
+    }
+    System.out.printf("%s: %dx%d, %d frames in the recording%n", recording, source.getWidth(),
+        source.getHeight(), source.getFrameCount());
+    System.out.printf("decoded %d frames, %d with a barcode, %d dropped, %.1f frames/s%n", frames, found,
+        source.getFramesDropped(), frames * (double) TimeUnit.SECONDS.toNanos(1) / elapsed);
+    printLatency("frame wait", waits);
+    printLatency("decode", decodes);
+  }
+
+  private static long[] concat(long[] a, long[] b, int bLength) {
+    long[] result = Arrays.copyOf(a, a.length + bLength);
+    System.arraycopy(b, 0, result, a.length, bLength);
+    return result;
+  }
+
+  private static void printLatency(String stage, long[] nanos) {
+    if (nanos.length == 0) {
+      return;
+    }
+    Arrays.sort(nanos);
+    long total = 0L;
+    for (long n : nanos) {
+      total += n;
+    }
+    System.out.printf("%-10s mean %.2f ms, p50 %.2f ms, p90 %.2f ms, p99 %.2f ms%n", stage,
+        millis(total / nanos.length), millis(nanos[nanos.length / 2]),
+        millis(nanos[(int) (nanos.length * 0.9)]), millis(nanos[(int) (nanos.length * 0.99)]));
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1.0e6;
+  }
+
+  /**
+   * Asks for a frame, decodes it, gives it back, and so on, like a DecodeThread.
+   */
+  private static final class Worker extends Thread implements FrameListener {
+
+    private final RecordedFrameSource source;
+    private final int rotation;
+    private final AdaptiveFormatReader reader;
+    private final BinarizerStrategy binarizerStrategy;
+    private final BlockingQueue<Object> mailbox = new ArrayBlockingQueue<Object>(1);
+    private long[] waits = new long[256];
+    private long[] decodes = new long[256];
+    private int frames;
+    private int found;
+    private int width;
+    private int height;
+
+    Worker(RecordedFrameSource source, int rotation) {
+      this.source = source;
+      this.rotation = rotation;
+      Map<DecodeHintType, Object> hints = Fixtures.decodeHints("default");
+      // As DecodeHandler sets them up out of the box
+      reader = new AdaptiveFormatReader(hints, 0);
+      binarizerStrategy = new BinarizerStrategy(hints);
+    }
+
+    @Override
+    public void onFrame(byte[] data, int width, int height) {
+      this.width = width;
+      this.height = height;
+      // Each request is answered once, so there is always room
+      mailbox.add(data == null ? END : data);
+    }
+
+    /**
+     * Waits for the worker to stop. Once the recording has ended its next request is answered
+     * with no frame, which stops it.
+     */
+    void finish() throws InterruptedException {
+      join();
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          long requested = System.nanoTime();
+          source.requestFrame(this);
+          Object frame = mailbox.take();
+          if (frame == END) {
+            return;
+          }
+          long received = System.nanoTime();
+          byte[] data = (byte[]) frame;
+          decode(data);
+          long decoded = System.nanoTime();
+          source.releaseFrame(data);
+          if (frames == waits.length) {
+            waits = Arrays.copyOf(waits, frames * 2);
+            decodes = Arrays.copyOf(decodes, frames * 2);
+          }
+          waits[frames] = received - requested;
+          decodes[frames] = decoded - received;
+          frames++;
+        }
+      } catch (InterruptedException ie) {
+        // done
+      }
+    }
+
+    private void decode(byte[] data) {
+      RotatedYUVLuminanceSource luminance = new Fixtures.Frame(data, width, height, rotation).framingRect();
+      boolean decoded = false;
+      reader.beginFrame();
+      try {
+        reader.decode(new BinaryBitmap(binarizerStrategy.create(luminance)));
+        decoded = true;
+        found++;
+      } catch (ReaderException re) {
+        // no barcode in this frame
+      } finally {
+        reader.reset();
+      }
+      binarizerStrategy.frameDone(decoded);
+    }
+
+  }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2014 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link LuminanceRotator} with the loops it replaced, each rotating by the rotation
+ * parameter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LuminanceRotatorBenchmark {
+
+  @Param({"640x480", "1280x720", "1920x1080"})
+  public String previewSize;
+
+  @Param({"90", "180", "270"})
+  public int rotation;
+
+  private byte[] frame;
+  private int dataWidth;
+  private int dataHeight;
+  private int left;
+  private int top;
+  private int width;
+  private int height;
+  private byte[] crop;
+  // Where frame pixel (x, y) goes in the whole rotated frame: base + x * xStep + y * yStep
+  private int base;
+  private int xStep;
+  private int yStep;
+
+  @Setup
+  public void setUp() {
+    int x = previewSize.indexOf('x');
+    dataWidth = Integer.parseInt(previewSize.substring(0, x));
+    dataHeight = Integer.parseInt(previewSize.substring(x + 1));
+    frame = new byte[dataWidth * dataHeight * 3 / 2];
+    new Random(0xCAFE).nextBytes(frame);
+
+    // A square framing rect, 3/4 of the short side, centred as CameraManager would place it
+    int rotatedWidth = LuminanceRotator.rotatedWidth(dataWidth, dataHeight, rotation);
+    int rotatedHeight = LuminanceRotator.rotatedHeight(dataWidth, dataHeight, rotation);
+    width = Math.min(rotatedWidth, rotatedHeight) * 3 / 4;
+    height = width;
+    left = (rotatedWidth - width) / 2;
+    top = (rotatedHeight - height) / 2;
+    crop = new byte[dataWidth * dataHeight];
+
+    switch (rotation) {
+      case 90:
+        base = dataHeight - 1;
+        xStep = dataHeight;
+        yStep = -1;
+        break;
+      case 180:
+        base = dataHeight * dataWidth - 1;
+        xStep = -1;
+        yStep = -dataWidth;
+        break;
+      default:
+        base = (dataWidth - 1) * dataHeight;
+        xStep = -dataHeight;
+        yStep = 1;
+        break;
+    }
+  }
+
+  /**
+   * The loop CameraManager.buildLuminanceSource used to run: rotate the whole frame, pixel by
+   * pixel, into a new array.
+   */
+  @Benchmark
+  public byte[] fullFrameLoop() {
+    byte[] rotatedData = new byte[frame.length];
+    for (int y = 0; y < dataHeight; y++) {
+      int outputOffset = base + y * yStep;
+      int inputOffset = y * dataWidth;
+      for (int x = 0; x < dataWidth; x++) {
+        rotatedData[outputOffset + x * xStep] = frame[inputOffset + x];
+      }
+    }
+    return rotatedData;
+  }
+
+  /**
+   * The whole frame, read row after row of output instead of written column after column.
+   */
+  @Benchmark
+  public byte[] rotatorFullFrame() {
+    return LuminanceRotator.rotateCrop(frame, dataWidth, dataHeight, rotation, 0, 0,
+        LuminanceRotator.rotatedWidth(dataWidth, dataHeight, rotation),
+        LuminanceRotator.rotatedHeight(dataWidth, dataHeight, rotation), crop);
+  }
+
+  /**
+   * What the library does: only the framing rect.
+   */
+  @Benchmark
+  public byte[] rotatorFramingRect() {
+    return LuminanceRotator.rotateCrop(frame, dataWidth, dataHeight, rotation, left, top, width,
+        height, crop);
+  }
+
+}
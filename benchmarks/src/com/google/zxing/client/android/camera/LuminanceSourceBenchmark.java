@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2014 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+import com.google.zxing.PlanarYUVLuminanceSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the luminance source for the framing rect and reading it out, the way the binarizer
+ * does, and rendering the result thumbnail. PlanarYUVLuminanceSource can't rotate, so in portrait
+ * it gets the whole frame rotated first, as CameraManager.buildLuminanceSource used to do. The
+ * binned matrix is what the first pass of the pyramid mode reads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LuminanceSourceBenchmark {
+
+  @Param({"640x480", "1280x720", "1920x1080"})
+  public String previewSize;
+
+  @Param({"0", "90"})
+  public int rotation;
+
+  @Param({"QR_CODE"})
+  public String fixture;
+
+  private Fixtures.Frame frame;
+
+  @Setup
+  public void setUp() throws IOException {
+    frame = Fixtures.load(fixture, previewSize, rotation);
+  }
+
+  @Benchmark
+  public byte[] planarYUVMatrix() {
+    return planarYUV().getMatrix();
+  }
+
+  @Benchmark
+  public byte[] rotatedYUVMatrix() {
+    return frame.framingRect().getMatrix();
+  }
+
+  @Benchmark
+  public byte[] binnedMatrix() {
+    return new BinnedLuminanceSource(frame.framingRect()).getMatrix();
+  }
+
+  @Benchmark
+  public int[] planarYUVThumbnail() {
+    return planarYUV().renderThumbnail();
+  }
+
+  @Benchmark
+  public int[] rotatedYUVThumbnail() {
+    return frame.framingRect().renderThumbnail();
+  }
+
+  private PlanarYUVLuminanceSource planarYUV() {
+    int dataWidth = frame.dataWidth;
+    int dataHeight = frame.dataHeight;
+    byte[] data = frame.data;
+    if (rotation == 90) {
+      byte[] rotatedData = new byte[data.length];
+      for (int y = 0; y < dataHeight; y++) {
+        for (int x = 0; x < dataWidth; x++) {
+          rotatedData[x * dataHeight + dataHeight - y - 1] = data[x + y * dataWidth];
+        }
+      }
+      data = rotatedData;
+      dataWidth = frame.dataHeight;
+      dataHeight = frame.dataWidth;
+    } else if (rotation != 0) {
+      throw new IllegalArgumentException("Only 0 and 90 degrees: " + rotation);
+    }
+    return new PlanarYUVLuminanceSource(data, dataWidth, dataHeight, frame.left, frame.top,
+        frame.width, frame.height, false);
+  }
+
+}
@@ -0,0 +1,82 @@
+package zxing.library;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What ZXingUtils does to generate a barcode, short of the Bitmap itself: encoding, and turning
+ * the matrix into pixels. perPixelRender is the column-major, one lookup per pixel loop which
+ * used to feed Bitmap.setPixel.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BarcodeGenerationBenchmark {
+
+    @Param({"QR_CODE", "CODE_128", "PDF_417"})
+    public String format;
+
+    // The ImageView's width and height
+    @Param({"300", "1000"})
+    public int size;
+
+    private BarcodeFormat barcodeFormat;
+    private String contents;
+    private BitMatrix matrix;
+    private int[] pixels;
+
+    @Setup
+    public void setUp() throws WriterException {
+        barcodeFormat = BarcodeFormat.valueOf(format);
+        contents = barcodeFormat == BarcodeFormat.QR_CODE ?
+                "https://github.com/zxing/zxing/wiki/Barcode-Contents" : "ZXING-BENCHMARK-0042";
+        matrix = encode();
+        pixels = new int[matrix.getWidth() * matrix.getHeight()];
+    }
+
+    @Benchmark
+    public BitMatrix encode() throws WriterException {
+        return BarcodeEncoder.encode(barcodeFormat, contents, size, size, null);
+    }
+
+    @Benchmark
+    public int[] render() {
+        return BitMatrixRenderer.render(matrix, pixels);
+    }
+
+    @Benchmark
+    public int[] perPixelRender() {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                pixels[y * width + x] = matrix.get(x, y) ? BitMatrixRenderer.BLACK : BitMatrixRenderer.WHITE;
+            }
+        }
+        return pixels;
+    }
+
+    @Benchmark
+    public int[] encodeAndRender() throws WriterException {
+        // As ZXingUtils.generate does on a cache miss
+        return BitMatrixRenderer.render(encode(), null);
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2014 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * Another source at half the width and height, every pixel the average of a 2x2 block. Rows
+ * are binned as they are read, two source rows at a time, so the full size source is never
+ * copied; only the half size matrix is allocated when asked for.
+ */
+public final class BinnedLuminanceSource extends LuminanceSource {
+
+  private final LuminanceSource delegate;
+  // Reused for the two source rows behind each binned row
+  private byte[] upper;
+  private byte[] lower;
+
+  public BinnedLuminanceSource(LuminanceSource delegate) {
+    super(delegate.getWidth() / 2, delegate.getHeight() / 2);
+    this.delegate = delegate;
+  }
+
+  @Override
+  public byte[] getRow(int y, byte[] row) {
+    if (y < 0 || y >= getHeight()) {
+      throw new IllegalArgumentException("Requested row is outside the image: " + y);
+    }
+    int width = getWidth();
+    if (row == null || row.length < width) {
+      row = new byte[width];
+    }
+    binRow(y, row, 0);
+    return row;
+  }
+
+  @Override
+  public byte[] getMatrix() {
+    int width = getWidth();
+    int height = getHeight();
+    byte[] matrix = new byte[width * height];
+    for (int y = 0; y < height; y++) {
+      binRow(y, matrix, y * width);
+    }
+    return matrix;
+  }
+
+  private void binRow(int y, byte[] out, int offset) {
+    upper = delegate.getRow(2 * y, upper);
+    lower = delegate.getRow(2 * y + 1, lower);
+    int width = getWidth();
+    for (int x = 0, i = 0; x < width; x++, i += 2) {
+      int sum = (upper[i] & 0xff) + (upper[i + 1] & 0xff) + (lower[i] & 0xff) + (lower[i + 1] & 0xff);
+      out[offset + x] = (byte) ((sum + 2) >> 2);
+    }
+  }
+
+  @Override
+  public boolean isCropSupported() {
+    return delegate.isCropSupported();
+  }
+
+  @Override
+  public LuminanceSource crop(int left, int top, int width, int height) {
+    return new BinnedLuminanceSource(delegate.crop(2 * left, 2 * top, 2 * width, 2 * height));
+  }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2014 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.util.Collection;
+
+/**
+ * Picks the smallest preview which still gives the formats being scanned for enough pixels per
+ * module, since decoding costs grow with the number of pixels, and the highest steady frame rate.
+ *
+ * <p>A barcode is assumed to fill at most three quarters of the short side of the
+ * preview, like it does in the framing rect. Only sizes about as close to the screen's aspect
+ * ratio as the closest one are considered, so the preview isn't stretched more than it must.</p>
+ */
+public final class DecodeCostPreviewPolicy implements PreviewPolicy {
+
+  private static final float CODE_FRACTION = 0.75f;
+  private static final float MAX_ASPECT_DISTORTION = 0.15f;
+  // Faster modes usually come with worse exposure and smaller frames
+  private static final int MAX_FPS = 30000;
+  private static final float PIXELS_PER_MODULE_1D = 2.0f;
+  private static final float PIXELS_PER_MODULE_2D = 3.0f;
+
+  private final int requiredShortSide;
+
+  /**
+   * @param formats The formats which will be scanned for.
+   */
+  public DecodeCostPreviewPolicy(Collection<BarcodeFormat> formats) {
+    float pixels = 0.0f;
+    for (BarcodeFormat format : formats) {
+      pixels = Math.max(pixels, pixelsAcross(format));
+    }
+    requiredShortSide = (int) Math.ceil(pixels / CODE_FRACTION);
+  }
+
+  /**
+   * @return How many pixels across a typical barcode of this format needs to decode reliably.
+   */
+  static float pixelsAcross(BarcodeFormat format) {
+    switch (format) {
+      case QR_CODE:
+        // Version 10
+        return 57 * PIXELS_PER_MODULE_2D;
+      case DATA_MATRIX:
+        return 48 * PIXELS_PER_MODULE_2D;
+      case AZTEC:
+        return 45 * PIXELS_PER_MODULE_2D;
+      case MAXICODE:
+        return 30 * PIXELS_PER_MODULE_2D;
+      case PDF_417:
+        // Five data columns
+        return 154 * PIXELS_PER_MODULE_1D;
+      case CODE_128:
+        // About 20 characters
+        return 255 * PIXELS_PER_MODULE_1D;
+      case CODE_39:
+        return 160 * PIXELS_PER_MODULE_1D;
+      case CODE_93:
+        return 120 * PIXELS_PER_MODULE_1D;
+      case CODABAR:
+        return 120 * PIXELS_PER_MODULE_1D;
+      case ITF:
+        // ITF-14
+        return 135 * PIXELS_PER_MODULE_1D;
+      case RSS_EXPANDED:
+        return 200 * PIXELS_PER_MODULE_1D;
+      case EAN_13:
+      case UPC_A:
+      case RSS_14:
+        return 96 * PIXELS_PER_MODULE_1D;
+      case EAN_8:
+        return 67 * PIXELS_PER_MODULE_1D;
+      case UPC_E:
+        return 51 * PIXELS_PER_MODULE_1D;
+      default:
+        return 0.0f;
+    }
+  }
+
+  /**
+   * @return The short side of the preview this policy asks for at least.
+   */
+  public int getRequiredShortSide() {
+    return requiredShortSide;
+  }
+
+  @Override
+  public int[] selectPreviewSize(PreviewParameters parameters, int screenWidth, int screenHeight) {
+    float screenAspect = (float) Math.max(screenWidth, screenHeight) / Math.min(screenWidth, screenHeight);
+    // Tall screens may match no size well; then take the closest shapes there are
+    float leastDistortion = Float.MAX_VALUE;
+    for (int[] size : parameters.getPreviewSizes()) {
+      leastDistortion = Math.min(leastDistortion, distortion(size, screenAspect));
+    }
+    int[] best = null;
+    int[] largest = null;
+    for (int[] size : parameters.getPreviewSizes()) {
+      if (distortion(size, screenAspect) > leastDistortion + MAX_ASPECT_DISTORTION) {
+        continue;
+      }
+      if (Math.min(size[0], size[1]) >= requiredShortSide && (best == null || area(size) < area(best))) {
+        best = size;
+      }
+      if (largest == null || area(size) > area(largest)) {
+        largest = size;
+      }
+    }
+    // Nothing sharp enough: get as close as possible
+    return best != null ? best : largest;
+  }
+
+  @Override
+  public int[] selectPreviewFpsRange(PreviewParameters parameters) {
+    int[] best = null;
+    for (int[] range : parameters.getPreviewFpsRanges()) {
+      if (range[1] > MAX_FPS) {
+        continue;
+      }
+      // A higher minimum keeps the rate steady; then the higher maximum
+      if (best == null || range[0] > best[0] || (range[0] == best[0] && range[1] > best[1])) {
+        best = range;
+      }
+    }
+    return best;
+  }
+
+  private static float distortion(int[] size, float screenAspect) {
+    return Math.abs((float) Math.max(size[0], size[1]) / Math.min(size[0], size[1]) - screenAspect);
+  }
+
+  private static int area(int[] size) {
+    return size[0] * size[1];
+  }
+
+}
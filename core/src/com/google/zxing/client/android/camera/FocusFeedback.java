@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2014 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+/**
+ * Decides when to focus from how decoding goes. When the detectors keep seeing something that
+ * looks like a barcode, frame after frame, but it won't decode, it is probably out of focus, so
+ * focus right away.
+ * While barcodes decode there is no point in refocusing, which would only blur a few frames.
+ *
+ * <p>Not thread safe.</p>
+ */
+public final class FocusFeedback {
+
+  private final int failuresBeforeFocus;
+  private int failures;
+  private boolean succeeding;
+
+  /**
+   * @param failuresBeforeFocus How many frames in a row with candidate points but no barcode
+   *  make for a focus.
+   */
+  public FocusFeedback(int failuresBeforeFocus) {
+    this.failuresBeforeFocus = Math.max(1, failuresBeforeFocus);
+  }
+
+  /**
+   * @param found Whether a barcode was decoded from the frame.
+   * @param candidatePoints Whether the detectors saw possible result points in it.
+   * @return true if a focus should start right away.
+   */
+  public boolean frameDecoded(boolean found, boolean candidatePoints) {
+    if (found) {
+      succeeding = true;
+      failures = 0;
+      return false;
+    }
+    succeeding = false;
+    if (!candidatePoints) {
+      // Only an unbroken run of frames with candidate points counts
+      failures = 0;
+      return false;
+    }
+    if (++failures >= failuresBeforeFocus) {
+      failures = 0;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return Whether the last frame decoded, so the timed refocus can be skipped.
+   */
+  public boolean isSucceeding() {
+    return succeeding;
+  }
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2014 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+/**
+ * Receives the frame asked for with {@link FrameSource#requestFrame(FrameListener)}.
+ */
+public interface FrameListener {
+
+  /**
+   * Called on whichever thread the source produces frames on, so this should only hand the frame
+   * over and return.
+   *
+   * @param data The frame in NV21, Y plane first. It must be released with
+   *  {@link FrameSource#releaseFrame(byte[])} once nothing refers to it. Null if the source
+   *  has no more frames to give, like a recording which has ended.
+   * @param width The width of the frame.
+   * @param height The height of the frame.
+   */
+  void onFrame(byte[] data, int width, int height);
+
+}
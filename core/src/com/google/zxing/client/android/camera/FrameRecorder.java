@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2014 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes preview frames in the format {@link RecordedFrameSource} replays: a 16 byte header
+ * holding the magic "NV21", a version, the width and the height as big-endian ints, followed by
+ * the raw NV21 frames, width * height * 3 / 2 bytes each.
+ */
+public final class FrameRecorder implements Closeable {
+
+  static final int MAGIC = 0x4E563231; // "NV21"
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 16;
+
+  private final DataOutputStream out;
+  private final int frameSize;
+
+  public FrameRecorder(OutputStream out, int width, int height) throws IOException {
+    this.out = new DataOutputStream(new BufferedOutputStream(out));
+    this.frameSize = frameSize(width, height);
+    this.out.writeInt(MAGIC);
+    this.out.writeInt(VERSION);
+    this.out.writeInt(width);
+    this.out.writeInt(height);
+  }
+
+  /**
+   * @param frame A frame of the size given at construction. A longer buffer, as a camera may
+   *  hand out, is cut to size.
+   */
+  public void write(byte[] frame) throws IOException {
+    if (frame.length < frameSize) {
+      throw new IllegalArgumentException("Frame is shorter than " + frameSize + " bytes");
+    }
+    out.write(frame, 0, frameSize);
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+
+  static int frameSize(int width, int height) {
+    return width * height * 3 / 2;
+  }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2014 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+/**
+ * Anything the decoders can take preview frames from: the camera itself in CameraManager,
+ * or a recording replayed by {@link RecordedFrameSource} when there is no camera at all.
+ */
+public interface FrameSource {
+
+  /**
+   * Asks for the next frame. Each request is answered with a single frame, in the order the
+   * requests were made.
+   *
+   * @param listener Where the frame is delivered.
+   */
+  void requestFrame(FrameListener listener);
+
+  /**
+   * Gives a delivered frame back, so its buffer can be filled again.
+   *
+   * @param data The frame, which must not be touched afterwards.
+   */
+  void releaseFrame(byte[] data);
+
+}
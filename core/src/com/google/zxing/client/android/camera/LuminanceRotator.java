@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2014 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+/**
+ * Rotates the luminance (Y) plane of a preview frame. Only the region which is going to be
+ * decoded is copied, so the rest of the frame is never touched.
+ *
+ * <p>Rotations are clockwise, in degrees. Seen through a rotation, a pixel of the frame is found
+ * at a fixed offset plus a pixel stride per column and a row stride per row, which is all that
+ * readers of the rotated image need to know.</p>
+ */
+public final class LuminanceRotator {
+
+  private LuminanceRotator() {
+  }
+
+  static void checkRotation(int rotation) {
+    if (rotation != 0 && rotation != 90 && rotation != 180 && rotation != 270) {
+      throw new IllegalArgumentException("Rotation must be 0, 90, 180 or 270: " + rotation);
+    }
+  }
+
+  /**
+   * @return The width of a dataWidth x dataHeight frame once it is rotated.
+   */
+  public static int rotatedWidth(int dataWidth, int dataHeight, int rotation) {
+    return rotation == 90 || rotation == 270 ? dataHeight : dataWidth;
+  }
+
+  /**
+   * @return The height of a dataWidth x dataHeight frame once it is rotated.
+   */
+  public static int rotatedHeight(int dataWidth, int dataHeight, int rotation) {
+    return rotation == 90 || rotation == 270 ? dataWidth : dataHeight;
+  }
+
+  /**
+   * @return How far apart two horizontally adjacent pixels of the rotated image are in the frame.
+   */
+  public static int pixelStride(int dataWidth, int rotation) {
+    switch (rotation) {
+      case 90:
+        return -dataWidth;
+      case 180:
+        return -1;
+      case 270:
+        return dataWidth;
+      default:
+        return 1;
+    }
+  }
+
+  /**
+   * @return How far apart two vertically adjacent pixels of the rotated image are in the frame.
+   */
+  public static int rowStride(int dataWidth, int rotation) {
+    switch (rotation) {
+      case 90:
+        return 1;
+      case 180:
+        return -dataWidth;
+      case 270:
+        return -1;
+      default:
+        return dataWidth;
+    }
+  }
+
+  /**
+   * @return The index in the frame of pixel (x, y) of the rotated image.
+   */
+  public static int offsetOf(int dataWidth, int dataHeight, int rotation, int x, int y) {
+    int origin;
+    switch (rotation) {
+      case 90:
+        origin = (dataHeight - 1) * dataWidth;
+        break;
+      case 180:
+        origin = dataHeight * dataWidth - 1;
+        break;
+      case 270:
+        origin = dataWidth - 1;
+        break;
+      default:
+        origin = 0;
+        break;
+    }
+    return origin + x * pixelStride(dataWidth, rotation) + y * rowStride(dataWidth, rotation);
+  }
+
+  /**
+   * Copies the part of the frame which lands at (left, top, width, height) once the frame is
+   * rotated.
+   *
+   * @param yuvData The preview frame; only the leading Y plane is read.
+   * @param dataWidth The width of the frame as delivered by the camera.
+   * @param dataHeight The height of the frame as delivered by the camera.
+   * @param rotation The clockwise rotation: 0, 90, 180 or 270.
+   * @param left The left of the crop, in rotated coordinates.
+   * @param top The top of the crop, in rotated coordinates.
+   * @param width The width of the crop, in rotated coordinates.
+   * @param height The height of the crop, in rotated coordinates.
+   * @param reuse A buffer to write into, or null. A new one is allocated if it is too small.
+   * @return The crop, row by row, width * height bytes long.
+   */
+  public static byte[] rotateCrop(byte[] yuvData, int dataWidth, int dataHeight, int rotation,
+                                  int left, int top, int width, int height, byte[] reuse) {
+    checkRotation(rotation);
+    if (left < 0 || top < 0 ||
+        left + width > rotatedWidth(dataWidth, dataHeight, rotation) ||
+        top + height > rotatedHeight(dataWidth, dataHeight, rotation)) {
+      throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+    }
+    byte[] rotated = reuse != null && reuse.length >= width * height ? reuse : new byte[width * height];
+    copy(yuvData, offsetOf(dataWidth, dataHeight, rotation, left, top),
+         pixelStride(dataWidth, rotation), rowStride(dataWidth, rotation), rotated, width, height);
+    return rotated;
+  }
+
+  /**
+   * Gathers width x height pixels, starting at offset and walking the given strides, into dst
+   * row by row.
+   *
+   * <p>Turned by 90 or 270 degrees, an output row walks down a column of the frame, one cache
+   * line per pixel. The frame rows under the next output rows are still cached by then, and
+   * JMH runs of LuminanceRotatorBenchmark showed copying in tiles was no faster, for the
+   * framing rect or the whole frame, so this is a plain walk.</p>
+   */
+  static void copy(byte[] src, int offset, int pixelStride, int rowStride,
+                   byte[] dst, int width, int height) {
+    if (pixelStride == 1) {
+      for (int y = 0; y < height; y++) {
+        System.arraycopy(src, offset + y * rowStride, dst, y * width, width);
+      }
+    } else {
+      for (int y = 0; y < height; y++) {
+        int inputOffset = offset + y * rowStride;
+        int outputOffset = y * width;
+        for (int x = 0; x < width; x++) {
+          dst[outputOffset + x] = src[inputOffset];
+          inputOffset += pixelStride;
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2014 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The preview settings a camera supports, read from the string Camera.Parameters.flatten()
+ * returns, so a {@link PreviewPolicy} can be tried against parameters recorded from any device
+ * without the device.
+ */
+public final class PreviewParameters {
+
+  private final List<int[]> previewSizes;
+  private final List<int[]> previewFpsRanges;
+  private final int[] previewSize;
+
+  public PreviewParameters(List<int[]> previewSizes, List<int[]> previewFpsRanges, int[] previewSize) {
+    this.previewSizes = Collections.unmodifiableList(previewSizes);
+    this.previewFpsRanges = Collections.unmodifiableList(previewFpsRanges);
+    this.previewSize = previewSize;
+  }
+
+  /**
+   * @param flattened As returned by Camera.Parameters.flatten(), like
+   *  {@code preview-size=640x480;preview-size-values=1280x720,640x480;preview-fps-range-values=(15000,30000)}.
+   */
+  public static PreviewParameters unflatten(String flattened) {
+    List<int[]> sizes = new ArrayList<int[]>();
+    List<int[]> fpsRanges = new ArrayList<int[]>();
+    int[] size = null;
+    for (String pair : flattened.split(";")) {
+      int equals = pair.indexOf('=');
+      if (equals < 0) {
+        continue;
+      }
+      String key = pair.substring(0, equals);
+      String value = pair.substring(equals + 1);
+      if ("preview-size".equals(key)) {
+        size = parseSize(value);
+      } else if ("preview-size-values".equals(key)) {
+        for (String sizeValue : value.split(",")) {
+          int[] parsed = parseSize(sizeValue);
+          if (parsed != null) {
+            sizes.add(parsed);
+          }
+        }
+      } else if ("preview-fps-range-values".equals(key)) {
+        // (min,max),(min,max)
+        for (String range : value.split("\\),?")) {
+          int comma = range.indexOf(',');
+          if (range.startsWith("(") && comma > 0) {
+            try {
+              fpsRanges.add(new int[] {
+                  Integer.parseInt(range.substring(1, comma).trim()),
+                  Integer.parseInt(range.substring(comma + 1).trim())});
+            } catch (NumberFormatException nfe) {
+              // skip it
+            }
+          }
+        }
+      }
+    }
+    return new PreviewParameters(sizes, fpsRanges, size);
+  }
+
+  private static int[] parseSize(String value) {
+    int x = value.indexOf('x');
+    if (x < 0) {
+      return null;
+    }
+    try {
+      return new int[] {Integer.parseInt(value.substring(0, x).trim()),
+                        Integer.parseInt(value.substring(x + 1).trim())};
+    } catch (NumberFormatException nfe) {
+      return null;
+    }
+  }
+
+  /**
+   * @return The supported preview sizes as {width, height}.
+   */
+  public List<int[]> getPreviewSizes() {
+    return previewSizes;
+  }
+
+  /**
+   * @return The supported preview frame rate ranges as {min, max}, in frames per 1000 seconds.
+   */
+  public List<int[]> getPreviewFpsRanges() {
+    return previewFpsRanges;
+  }
+
+  /**
+   * @return The current preview size as {width, height}, or null if unknown.
+   */
+  public int[] getPreviewSize() {
+    return previewSize;
+  }
+
+}
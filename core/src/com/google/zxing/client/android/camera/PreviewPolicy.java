@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2014 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+/**
+ * Picks the preview size and frame rate the camera is set up with.
+ */
+public interface PreviewPolicy {
+
+  /**
+   * @param screenWidth The width of the screen, in landscape.
+   * @param screenHeight The height of the screen, in landscape.
+   * @return One of the supported sizes as {width, height}, or null to keep the camera's default.
+   */
+  int[] selectPreviewSize(PreviewParameters parameters, int screenWidth, int screenHeight);
+
+  /**
+   * @return One of the supported ranges as {min, max}, or null to keep the camera's default.
+   */
+  int[] selectPreviewFpsRange(PreviewParameters parameters);
+
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2014 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays NV21 frames recorded with {@link FrameRecorder}, so the decode pipeline can be driven
+ * and measured on a plain JVM without a camera.
+ *
+ * <p>With a frame rate the recording plays like a live preview: a frame nobody has asked for by
+ * the time it is due is dropped, as the camera would drop it. Without one, every request is
+ * answered with the next frame straight away, which measures raw decode throughput.</p>
+ *
+ * <p>Frames are read into a small fixed set of buffers, so a recording of any length can be
+ * replayed; when all of them are out, replay waits for one to be released.</p>
+ */
+public final class RecordedFrameSource implements FrameSource, Closeable {
+
+  private static final int DEFAULT_BUFFER_COUNT = 3;
+
+  private final RandomAccessFile file;
+  private final FileChannel channel;
+  private final int width;
+  private final int height;
+  private final int frameSize;
+  private final int frameCount;
+  private final long frameIntervalNanos;
+  private final boolean loop;
+  private final byte[][] buffers;
+  private final ArrayDeque<byte[]> freeBuffers;
+  private final ArrayDeque<FrameListener> pendingRequests = new ArrayDeque<FrameListener>();
+  private Thread thread;
+  private boolean closed;
+  private boolean finished;
+  private IOException failure;
+  private long framesDelivered;
+  private long framesDropped;
+
+  /**
+   * @param recording A file written by {@link FrameRecorder}.
+   * @param framesPerSecond The rate frames become available at, or 0 to deliver each frame as
+   *  soon as it is asked for.
+   * @param loop true to start over at the end of the recording instead of stopping.
+   * @throws IOException if the file can't be read or is not a recording.
+   */
+  public RecordedFrameSource(File recording, float framesPerSecond, boolean loop) throws IOException {
+    this(recording, framesPerSecond, loop, DEFAULT_BUFFER_COUNT);
+  }
+
+  /**
+   * @param bufferCount How many frames can be out at once.
+   */
+  public RecordedFrameSource(File recording, float framesPerSecond, boolean loop, int bufferCount)
+      throws IOException {
+    if (framesPerSecond < 0.0f || bufferCount < 1) {
+      throw new IllegalArgumentException("Bad frame rate or buffer count");
+    }
+    file = new RandomAccessFile(recording, "r");
+    try {
+      if (file.readInt() != FrameRecorder.MAGIC) {
+        throw new IOException("Not a frame recording: " + recording);
+      }
+      int version = file.readInt();
+      if (version != FrameRecorder.VERSION) {
+        throw new IOException("Unsupported frame recording version " + version);
+      }
+      width = file.readInt();
+      height = file.readInt();
+      if (width <= 0 || height <= 0) {
+        throw new IOException("Bad frame size " + width + 'x' + height);
+      }
+    } catch (IOException ioe) {
+      file.close();
+      throw ioe;
+    }
+    channel = file.getChannel();
+    frameSize = FrameRecorder.frameSize(width, height);
+    frameCount = (int) ((file.length() - FrameRecorder.HEADER_SIZE) / frameSize);
+    frameIntervalNanos = framesPerSecond == 0.0f ? 0L : (long) (TimeUnit.SECONDS.toNanos(1) / framesPerSecond);
+    this.loop = loop;
+    buffers = new byte[bufferCount][frameSize];
+    freeBuffers = new ArrayDeque<byte[]>(bufferCount);
+    for (byte[] buffer : buffers) {
+      freeBuffers.add(buffer);
+    }
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * @return How many frames the recording holds.
+   */
+  public int getFrameCount() {
+    return frameCount;
+  }
+
+  /**
+   * @return How many frames have been handed to a listener.
+   */
+  public synchronized long getFramesDelivered() {
+    return framesDelivered;
+  }
+
+  /**
+   * @return How many frames came due while nobody was asking for one.
+   */
+  public synchronized long getFramesDropped() {
+    return framesDropped;
+  }
+
+  /**
+   * Starts replaying on a thread of its own.
+   */
+  public synchronized void start() {
+    if (thread != null || closed) {
+      throw new IllegalStateException("Already started");
+    }
+    thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        replay();
+      }
+    }, "RecordedFrameSource");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Waits until the end of the recording has been reached, or the source is closed.
+   *
+   * @throws IOException if reading the recording failed.
+   */
+  public synchronized void awaitEnd() throws IOException, InterruptedException {
+    while (!finished && !closed) {
+      wait();
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Once the recording has ended or the source is closed, the request is answered right away
+   * with a null frame.
+   */
+  @Override
+  public void requestFrame(FrameListener listener) {
+    synchronized (this) {
+      if (!finished && !closed) {
+        pendingRequests.add(listener);
+        notifyAll();
+        return;
+      }
+    }
+    listener.onFrame(null, width, height);
+  }
+
+  @Override
+  public synchronized void releaseFrame(byte[] data) {
+    for (byte[] buffer : buffers) {
+      if (buffer == data) {
+        freeBuffers.add(data);
+        notifyAll();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Stops replaying. Requests which are still waiting are answered with a null frame.
+   */
+  @Override
+  public void close() throws IOException {
+    Thread theThread;
+    synchronized (this) {
+      closed = true;
+      notifyAll();
+      theThread = thread;
+    }
+    endRequests();
+    if (theThread != null && theThread != Thread.currentThread()) {
+      try {
+        theThread.join();
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    file.close();
+  }
+
+  private void replay() {
+    long due = System.nanoTime();
+    int index = 0;
+    try {
+      while (index < frameCount) {
+        if (frameIntervalNanos > 0L) {
+          long wait = due - System.nanoTime();
+          if (wait > 0L) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+          }
+          due += frameIntervalNanos;
+        }
+
+        FrameListener listener;
+        byte[] buffer;
+        synchronized (this) {
+          if (frameIntervalNanos == 0L) {
+            while (!closed && pendingRequests.isEmpty()) {
+              wait();
+            }
+          }
+          if (closed) {
+            return;
+          }
+          listener = pendingRequests.poll();
+          if (listener == null) {
+            framesDropped++;
+            buffer = null;
+          } else {
+            // Like a camera with all its buffers out, stall until one comes back
+            while (!closed && freeBuffers.isEmpty()) {
+              wait();
+            }
+            if (closed) {
+              return;
+            }
+            buffer = freeBuffers.poll();
+            framesDelivered++;
+          }
+        }
+
+        if (buffer != null) {
+          readFrame(index, buffer);
+          listener.onFrame(buffer, width, height);
+        }
+        index++;
+        if (index == frameCount && loop) {
+          index = 0;
+        }
+      }
+    } catch (InterruptedException ie) {
+      // closing
+    } catch (IOException ioe) {
+      synchronized (this) {
+        failure = ioe;
+      }
+    } finally {
+      synchronized (this) {
+        finished = true;
+        notifyAll();
+      }
+      endRequests();
+    }
+  }
+
+  /**
+   * Answers the requests nothing more will come for, so nobody waits on them forever.
+   */
+  private void endRequests() {
+    List<FrameListener> ended;
+    synchronized (this) {
+      ended = new ArrayList<FrameListener>(pendingRequests);
+      pendingRequests.clear();
+    }
+    for (FrameListener listener : ended) {
+      listener.onFrame(null, width, height);
+    }
+  }
+
+  private void readFrame(int index, byte[] buffer) throws IOException {
+    ByteBuffer target = ByteBuffer.wrap(buffer, 0, frameSize);
+    long position = FrameRecorder.HEADER_SIZE + (long) index * frameSize;
+    while (target.hasRemaining()) {
+      int read = channel.read(target, position);
+      if (read < 0) {
+        throw new EOFException();
+      }
+      position += read;
+    }
+  }
+
+}
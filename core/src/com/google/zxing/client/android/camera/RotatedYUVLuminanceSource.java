@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2014 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * Like {@link com.google.zxing.PlanarYUVLuminanceSource}, but it also applies a rotation to the
+ * frame. The frame is never copied: rows and the matrix are read straight out of the camera
+ * data through the rotated coordinates, and only the crop which is asked for gets copied.
+ */
+public final class RotatedYUVLuminanceSource extends LuminanceSource {
+
+  private static final int THUMBNAIL_SCALE_FACTOR = 2;
+
+  private final byte[] yuvData;
+  private final int dataWidth;
+  private final int dataHeight;
+  private final int rotation;
+  private final int left;
+  private final int top;
+  private final int offset;
+  private final int pixelStride;
+  private final int rowStride;
+
+  /**
+   * @param yuvData The preview frame, Y plane first.
+   * @param dataWidth The width of the frame as delivered by the camera.
+   * @param dataHeight The height of the frame as delivered by the camera.
+   * @param rotation The clockwise rotation to apply: 0, 90, 180 or 270.
+   * @param left The left of the crop, in rotated coordinates.
+   * @param top The top of the crop, in rotated coordinates.
+   * @param width The width of the crop, in rotated coordinates.
+   * @param height The height of the crop, in rotated coordinates.
+   */
+  public RotatedYUVLuminanceSource(byte[] yuvData,
+                                   int dataWidth,
+                                   int dataHeight,
+                                   int rotation,
+                                   int left,
+                                   int top,
+                                   int width,
+                                   int height) {
+    super(width, height);
+
+    LuminanceRotator.checkRotation(rotation);
+    if (left < 0 || top < 0 ||
+        left + width > LuminanceRotator.rotatedWidth(dataWidth, dataHeight, rotation) ||
+        top + height > LuminanceRotator.rotatedHeight(dataWidth, dataHeight, rotation)) {
+      throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+    }
+
+    this.yuvData = yuvData;
+    this.dataWidth = dataWidth;
+    this.dataHeight = dataHeight;
+    this.rotation = rotation;
+    this.left = left;
+    this.top = top;
+    this.offset = LuminanceRotator.offsetOf(dataWidth, dataHeight, rotation, left, top);
+    this.pixelStride = LuminanceRotator.pixelStride(dataWidth, rotation);
+    this.rowStride = LuminanceRotator.rowStride(dataWidth, rotation);
+  }
+
+  @Override
+  public byte[] getRow(int y, byte[] row) {
+    if (y < 0 || y >= getHeight()) {
+      throw new IllegalArgumentException("Requested row is outside the image: " + y);
+    }
+    int width = getWidth();
+    if (row == null || row.length < width) {
+      row = new byte[width];
+    }
+    LuminanceRotator.copy(yuvData, offset + y * rowStride, pixelStride, 0, row, width, 1);
+    return row;
+  }
+
+  @Override
+  public byte[] getMatrix() {
+    int width = getWidth();
+    int height = getHeight();
+
+    // If the caller asks for the entire unrotated frame, return the underlying array as-is.
+    if (rotation == 0 && width == dataWidth && height == dataHeight) {
+      return yuvData;
+    }
+
+    byte[] matrix = new byte[width * height];
+    LuminanceRotator.copy(yuvData, offset, pixelStride, rowStride, matrix, width, height);
+    return matrix;
+  }
+
+  @Override
+  public boolean isCropSupported() {
+    return true;
+  }
+
+  @Override
+  public LuminanceSource crop(int left, int top, int width, int height) {
+    return new RotatedYUVLuminanceSource(yuvData,
+                                         dataWidth,
+                                         dataHeight,
+                                         rotation,
+                                         this.left + left,
+                                         this.top + top,
+                                         width,
+                                         height);
+  }
+
+  public int[] renderThumbnail() {
+    int width = getWidth() / THUMBNAIL_SCALE_FACTOR;
+    int height = getHeight() / THUMBNAIL_SCALE_FACTOR;
+    int[] pixels = new int[width * height];
+    int xStep = pixelStride * THUMBNAIL_SCALE_FACTOR;
+    int yStep = rowStride * THUMBNAIL_SCALE_FACTOR;
+    for (int y = 0; y < height; y++) {
+      int inputOffset = offset + y * yStep;
+      int outputOffset = y * width;
+      for (int x = 0; x < width; x++) {
+        int grey = yuvData[inputOffset] & 0xff;
+        pixels[outputOffset + x] = 0xFF000000 | (grey * 0x00010101);
+        inputOffset += xStep;
+      }
+    }
+    return pixels;
+  }
+
+  /**
+   * @return width of image from {@link #renderThumbnail()}
+   */
+  public int getThumbnailWidth() {
+    return getWidth() / THUMBNAIL_SCALE_FACTOR;
+  }
+
+  /**
+   * @return height of image from {@link #renderThumbnail()}
+   */
+  public int getThumbnailHeight() {
+    return getHeight() / THUMBNAIL_SCALE_FACTOR;
+  }
+
+}
@@ -0,0 +1,144 @@
+package zxing.library;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Reader;
+import com.google.zxing.Result;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Looks for the formats which were already found this session first, and for all the others only
+ * on every Nth frame. Until something is found, every frame is searched for every format.
+ *
+ * <p>Not thread safe; each decode worker has its own.</p>
+ */
+public final class AdaptiveFormatReader implements Reader {
+
+    private final Map<DecodeHintType, Object> hints;
+    private final Set<BarcodeFormat> allFormats;
+    private final EnumSet<BarcodeFormat> preferred = EnumSet.noneOf(BarcodeFormat.class);
+    private final EnumSet<BarcodeFormat> demoted = EnumSet.noneOf(BarcodeFormat.class);
+    private final Collection<BarcodeFormat> allView;
+    private final Collection<BarcodeFormat> preferredView = Collections.unmodifiableSet(preferred);
+    private final int demotedInterval;
+    private final MultiFormatReader allReader = new MultiFormatReader();
+    private final MultiFormatReader preferredReader = new MultiFormatReader();
+    private final MultiFormatReader demotedReader = new MultiFormatReader();
+    private Collection<BarcodeFormat> lastAttempted;
+    private long frames;
+    // Whether the formats not found yet are looked for in the current frame
+    private boolean tryDemoted = true;
+
+    /**
+     * @param hints The hints for every reader; POSSIBLE_FORMATS says which formats to look for, all
+     *  of them if missing.
+     * @param demotedInterval Formats not found yet are looked for on one frame in this many; 1 looks
+     *  for them on every frame, but still after the preferred ones. 0 or less turns adapting off,
+     *  so every frame is searched for every format at once.
+     */
+    @SuppressWarnings("unchecked")
+    public AdaptiveFormatReader(Map<DecodeHintType, Object> hints, int demotedInterval) {
+        this.hints = new EnumMap<DecodeHintType, Object>(DecodeHintType.class);
+        this.hints.putAll(hints);
+        Collection<BarcodeFormat> possible = (Collection<BarcodeFormat>) hints.get(DecodeHintType.POSSIBLE_FORMATS);
+        allFormats = possible == null || possible.isEmpty()
+                ? EnumSet.allOf(BarcodeFormat.class) : EnumSet.copyOf(possible);
+        allView = Collections.unmodifiableSet(allFormats);
+        this.demotedInterval = demotedInterval;
+        allReader.setHints(withFormats(allFormats));
+        lastAttempted = allView;
+    }
+
+    /**
+     * Starts a new frame. A frame may be decoded more than once, for example a crop before the
+     * whole of it, and the same formats are looked for each time.
+     */
+    public void beginFrame() {
+        frames++;
+        tryDemoted = preferred.isEmpty() || demotedInterval <= 1 || frames % demotedInterval == 0;
+    }
+
+    /**
+     * @throws NotFoundException If none of the formats looked for on this frame were found.
+     */
+    @Override
+    public Result decode(BinaryBitmap image) throws NotFoundException {
+        if (preferred.isEmpty()) {
+            lastAttempted = allView;
+            Result result = allReader.decodeWithState(image);
+            promote(result.getBarcodeFormat());
+            return result;
+        }
+        lastAttempted = preferredView;
+        try {
+            return preferredReader.decodeWithState(image);
+        } catch (NotFoundException nfe) {
+            if (!tryDemoted || demoted.isEmpty()) {
+                throw nfe;
+            }
+        }
+        lastAttempted = allView;
+        Result result = demotedReader.decodeWithState(image);
+        promote(result.getBarcodeFormat());
+        return result;
+    }
+
+    /**
+     * Remembers a format as found, so it is looked for first from now on. Done by
+     * {@link #decode(BinaryBitmap)} already.
+     */
+    public void promote(BarcodeFormat format) {
+        if (demotedInterval > 0 && allFormats.contains(format) && preferred.add(format)) {
+            demoted.clear();
+            demoted.addAll(allFormats);
+            demoted.removeAll(preferred);
+            preferredReader.setHints(withFormats(preferred));
+            demotedReader.setHints(withFormats(demoted));
+        }
+    }
+
+    /**
+     * The hints given to the constructor are used; these are ignored.
+     */
+    @Override
+    public Result decode(BinaryBitmap image, Map<DecodeHintType, ?> hints) throws NotFoundException {
+        return decode(image);
+    }
+
+    @Override
+    public void reset() {
+        allReader.reset();
+        preferredReader.reset();
+        demotedReader.reset();
+    }
+
+    /**
+     * @return The formats looked for in the last frame.
+     */
+    public Collection<BarcodeFormat> getLastAttemptedFormats() {
+        return lastAttempted;
+    }
+
+    /**
+     * @return The formats found so far, which are looked for first.
+     */
+    public Collection<BarcodeFormat> getPreferredFormats() {
+        return preferredView;
+    }
+
+    private Map<DecodeHintType, Object> withFormats(Set<BarcodeFormat> formats) {
+        Map<DecodeHintType, Object> result = new EnumMap<DecodeHintType, Object>(hints);
+        result.put(DecodeHintType.POSSIBLE_FORMATS, EnumSet.copyOf(formats));
+        return result;
+    }
+
+}
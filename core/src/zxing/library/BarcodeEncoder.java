@@ -0,0 +1,61 @@
+package zxing.library;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.Writer;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.oned.*;
+import com.google.zxing.pdf417.PDF417Writer;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+import java.util.Map;
+
+/**
+ * The formats {@code ZXingUtils} can generate, and the encoding step on its own, without any
+ * Bitmap involved.
+ */
+public final class BarcodeEncoder {
+
+    private BarcodeEncoder() {
+    }
+
+    /**
+     * @return true if {@link #encode} can produce this format.
+     */
+    public static boolean isSupported(BarcodeFormat format) {
+        return createWriter(format) != null;
+    }
+
+    /**
+     * @return The encoded barcode, or null if the format is not supported.
+     * @throws WriterException if the contents can't be encoded in this format.
+     */
+    public static BitMatrix encode(BarcodeFormat format, String contents, int width, int height,
+                                   Map<EncodeHintType, ?> hints) throws WriterException {
+        Writer writer = createWriter(format);
+        return writer == null ? null : writer.encode(contents, format, width, height, hints);
+    }
+
+    private static Writer createWriter(BarcodeFormat format) {
+        switch (format) {
+            case QR_CODE:
+                return new QRCodeWriter();
+            case CODE_128:
+                return new Code128Writer();
+            case CODE_39:
+                return new Code39Writer();
+            case PDF_417:
+                return new PDF417Writer();
+            case EAN_8:
+                return new EAN8Writer();
+            case EAN_13:
+                return new EAN13Writer();
+            case UPC_A:
+                return new UPCAWriter();
+            default:
+                return null;
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+package zxing.library;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Binarizer;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Picks the binarizer for each frame. The global histogram one is much cheaper and does well on
+ * high contrast 1D labels, so it goes first when only 1D formats are looked for; the hybrid one
+ * copes with uneven light and is needed for most 2D codes. After a frame where nothing was found
+ * the other one is tried on the next frame.
+ *
+ * <p>A {@link Type} given as the {@link DecodeHintType#OTHER} hint fixes the binarizer instead.
+ * Not thread safe; each decode worker has its own.</p>
+ */
+public final class BinarizerStrategy {
+
+    public enum Type {
+        HYBRID,
+        GLOBAL_HISTOGRAM;
+
+        public Binarizer create(LuminanceSource source) {
+            return this == HYBRID ? new HybridBinarizer(source) : new GlobalHistogramBinarizer(source);
+        }
+    }
+
+    private static final Set<BarcodeFormat> ONE_D_FORMATS = EnumSet.of(
+            BarcodeFormat.UPC_A,
+            BarcodeFormat.UPC_E,
+            BarcodeFormat.EAN_13,
+            BarcodeFormat.EAN_8,
+            BarcodeFormat.RSS_14,
+            BarcodeFormat.RSS_EXPANDED,
+            BarcodeFormat.CODE_39,
+            BarcodeFormat.CODE_93,
+            BarcodeFormat.CODE_128,
+            BarcodeFormat.ITF,
+            BarcodeFormat.CODABAR,
+            BarcodeFormat.UPC_EAN_EXTENSION);
+
+    private final boolean fixed;
+    private Type current;
+
+    @SuppressWarnings("unchecked")
+    public BinarizerStrategy(Map<DecodeHintType, ?> hints) {
+        Object hint = hints.get(DecodeHintType.OTHER);
+        if (hint instanceof Type) {
+            fixed = true;
+            current = (Type) hint;
+        } else {
+            Collection<BarcodeFormat> formats = (Collection<BarcodeFormat>) hints.get(DecodeHintType.POSSIBLE_FORMATS);
+            fixed = false;
+            current = formats != null && !formats.isEmpty() && ONE_D_FORMATS.containsAll(formats)
+                    ? Type.GLOBAL_HISTOGRAM : Type.HYBRID;
+        }
+    }
+
+    /**
+     * @return The binarizer to use on the current frame.
+     */
+    public Type getType() {
+        return current;
+    }
+
+    public Binarizer create(LuminanceSource source) {
+        return current.create(source);
+    }
+
+    /**
+     * Ends a frame; after a failure the other binarizer gets the next one, unless it is fixed.
+     */
+    public void frameDone(boolean found) {
+        if (!found && !fixed) {
+            current = current == Type.HYBRID ? Type.GLOBAL_HISTOGRAM : Type.HYBRID;
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package zxing.library;
+
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+import java.util.Arrays;
+
+/**
+ * Turns a {@link BitMatrix} into ARGB pixels, one row at a time and one run of equal modules at
+ * a time, instead of looking every pixel up on its own.
+ */
+public final class BitMatrixRenderer {
+
+    public static final int BLACK = 0xFF000000;
+    public static final int WHITE = 0xFFFFFFFF;
+
+    private BitMatrixRenderer() {
+    }
+
+    /**
+     * @param matrix The encoded barcode.
+     * @param reuse An array to render into, or null. A new one is allocated if it is too small.
+     * @return The pixels, row by row, matrix.getWidth() * matrix.getHeight() long.
+     */
+    public static int[] render(BitMatrix matrix, int[] reuse) {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        int[] pixels = reuse != null && reuse.length >= width * height ? reuse : new int[width * height];
+        BitArray row = new BitArray(width);
+        BitArray previousRow = new BitArray(width);
+        for (int y = 0; y < height; y++) {
+            int offset = y * width;
+            row = matrix.getRow(y, row);
+            if (y > 0 && row.equals(previousRow)) {
+                // Most rows repeat the one above; a 1D barcode is the same row all the way down
+                System.arraycopy(pixels, offset - width, pixels, offset, width);
+            } else {
+                int x = 0;
+                while (x < width) {
+                    int black = row.getNextSet(x);
+                    Arrays.fill(pixels, offset + x, offset + black, WHITE);
+                    if (black == width) {
+                        break;
+                    }
+                    x = row.getNextUnset(black);
+                    Arrays.fill(pixels, offset + black, offset + x, BLACK);
+                }
+            }
+            BitArray swap = previousRow;
+            previousRow = row;
+            row = swap;
+        }
+        return pixels;
+    }
+
+}
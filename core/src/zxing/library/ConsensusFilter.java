@@ -0,0 +1,121 @@
+package zxing.library;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Decides when a decoded barcode is trustworthy enough to report: once enough of the last few
+ * frames agree on its format and text, or right away for formats whose error correction makes a
+ * misread very unlikely. A barcode just reported is not reported again until it has been missing
+ * from as many frames in a row as the window holds, so one held in front of the camera is not
+ * reported over and over just because a frame or two failed to decode.
+ *
+ * <p>The frames are kept in a ring, so nothing is allocated per frame. Not thread safe.</p>
+ */
+public final class ConsensusFilter {
+
+    /**
+     * Formats protected by Reed-Solomon error correction, which are reported on the first frame.
+     */
+    public static final Set<BarcodeFormat> STRONG_CHECKSUM_FORMATS = EnumSet.of(
+            BarcodeFormat.QR_CODE,
+            BarcodeFormat.DATA_MATRIX,
+            BarcodeFormat.AZTEC,
+            BarcodeFormat.PDF_417,
+            BarcodeFormat.MAXICODE);
+
+    private final int required;
+    private final Set<BarcodeFormat> immediate;
+    private final BarcodeFormat[] formats;
+    private final String[] texts;
+    private int next;
+    private BarcodeFormat reportedFormat;
+    private String reportedText;
+    // Frames in a row in which nothing was decoded
+    private int failures;
+
+    /**
+     * @param required How many frames must agree, at least 1.
+     * @param window Among how many of the most recent frames, at least {@code required}.
+     * @param immediate Formats reported on the first frame they are seen in.
+     */
+    public ConsensusFilter(int required, int window, Collection<BarcodeFormat> immediate) {
+        this.required = Math.max(1, required);
+        int size = Math.max(this.required, window);
+        this.immediate = immediate.isEmpty()
+                ? EnumSet.noneOf(BarcodeFormat.class) : EnumSet.copyOf(immediate);
+        formats = new BarcodeFormat[size];
+        texts = new String[size];
+    }
+
+    public ConsensusFilter(int required, int window) {
+        this(required, window, STRONG_CHECKSUM_FORMATS);
+    }
+
+    /**
+     * Records a frame in which this barcode was decoded.
+     *
+     * @return true if it should be reported now.
+     */
+    public boolean offer(BarcodeFormat format, String text) {
+        formats[next] = format;
+        texts[next] = text;
+        next = (next + 1) % formats.length;
+        failures = 0;
+        if (format == reportedFormat && text.equals(reportedText)) {
+            // Still the one just reported
+            return false;
+        }
+        if (!immediate.contains(format) && count(format, text) < required) {
+            return false;
+        }
+        reportedFormat = format;
+        reportedText = text;
+        clearFrames();
+        return true;
+    }
+
+    /**
+     * Records a frame in which nothing was decoded.
+     */
+    public void failed() {
+        formats[next] = null;
+        texts[next] = null;
+        next = (next + 1) % formats.length;
+        if (++failures >= formats.length) {
+            // Gone long enough to be reported again
+            reportedFormat = null;
+            reportedText = null;
+        }
+    }
+
+    /**
+     * Forgets the frames seen so far, for when scanning starts over. What was reported last is
+     * kept, so a barcode still in front of the camera is not reported again right away.
+     */
+    public void restart() {
+        clearFrames();
+        failures = 0;
+    }
+
+    private int count(BarcodeFormat format, String text) {
+        int count = 0;
+        for (int i = 0; i < formats.length; i++) {
+            if (formats[i] == format && text.equals(texts[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void clearFrames() {
+        for (int i = 0; i < formats.length; i++) {
+            formats[i] = null;
+            texts[i] = null;
+        }
+    }
+
+}
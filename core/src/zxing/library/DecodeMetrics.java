@@ -0,0 +1,216 @@
+package zxing.library;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Where the time went while decoding one preview frame. Each decode worker fills in the same
+ * object for every frame, so a {@link DecodeMetricsListener} must copy out what it wants to keep.
+ *
+ * <p>The luminance source reads the frame through the rotation lazily, so rotation is the time
+ * spent building it plus reading pixels out of it, and binarization excludes that time.</p>
+ */
+public final class DecodeMetrics {
+
+    private final int worker;
+    private long frameRequestedNanos;
+    private boolean measured;
+    private long frameWaitNanos;
+    private long sharpnessNanos;
+    private float sharpness;
+    private boolean rejected;
+    private long rotationNanos;
+    private long binarizationNanos;
+    private long decodeNanos;
+    private long replySentNanos;
+    private long handoffNanos;
+    private BarcodeFormat format;
+    private BinarizerStrategy.Type binarizer;
+    private Collection<BarcodeFormat> attemptedFormats = Collections.emptySet();
+
+    public DecodeMetrics(int worker) {
+        this.worker = worker;
+    }
+
+    /**
+     * @return The number of the decode worker which decoded the frame.
+     */
+    public int getWorker() {
+        return worker;
+    }
+
+    /**
+     * @return From asking the camera for the frame until the worker got it.
+     */
+    public long getFrameWaitNanos() {
+        return frameWaitNanos;
+    }
+
+    /**
+     * @return Scoring how sharp the frame is, 0 unless blurred frames are skipped.
+     */
+    public long getSharpnessNanos() {
+        return sharpnessNanos;
+    }
+
+    /**
+     * @return The gradient energy of the frame, see {@link SharpnessEstimator}, or -1 if it
+     *  wasn't scored.
+     */
+    public float getSharpness() {
+        return sharpness;
+    }
+
+    /**
+     * @return true if the frame was too blurred to decode.
+     */
+    public boolean isRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return Building the luminance source and reading the rotated crop out of the frame.
+     */
+    public long getRotationNanos() {
+        return rotationNanos;
+    }
+
+    /**
+     * @return Turning the luminance into black and white.
+     */
+    public long getBinarizationNanos() {
+        return binarizationNanos;
+    }
+
+    /**
+     * @return Looking for barcodes in the black and white image, the rest of the reader's time.
+     */
+    public long getDecodeNanos() {
+        return decodeNanos;
+    }
+
+    /**
+     * @return From the worker sending its answer until the UI thread got it.
+     */
+    public long getHandoffNanos() {
+        return handoffNanos;
+    }
+
+    public long getTotalNanos() {
+        return frameWaitNanos + sharpnessNanos + rotationNanos + binarizationNanos + decodeNanos + handoffNanos;
+    }
+
+    /**
+     * @return true if a barcode was found in the frame.
+     */
+    public boolean isSuccessful() {
+        return format != null;
+    }
+
+    /**
+     * @return The format found, or null.
+     */
+    public BarcodeFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return The binarizer used on this frame.
+     */
+    public BinarizerStrategy.Type getBinarizer() {
+        return binarizer;
+    }
+
+    /**
+     * @return The formats the reader looked for in this frame.
+     */
+    public Collection<BarcodeFormat> getAttemptedFormats() {
+        return attemptedFormats;
+    }
+
+    /**
+     * Called when the frame is asked for, before anything else. Until the worker fills in the
+     * rest, the metrics count as not measured.
+     */
+    public void frameRequested(long nanos) {
+        frameRequestedNanos = nanos;
+        measured = false;
+    }
+
+    public boolean isMeasured() {
+        return measured;
+    }
+
+    /**
+     * Starts measuring a frame which just arrived at the worker.
+     */
+    public void frameReceived(long nanos, BinarizerStrategy.Type binarizer) {
+        frameWaitNanos = nanos - frameRequestedNanos;
+        sharpnessNanos = 0L;
+        sharpness = -1.0f;
+        rejected = false;
+        rotationNanos = 0L;
+        binarizationNanos = 0L;
+        decodeNanos = 0L;
+        handoffNanos = 0L;
+        format = null;
+        this.binarizer = binarizer;
+        attemptedFormats = Collections.emptySet();
+        measured = true;
+    }
+
+    public void sharpnessScored(float sharpness, boolean rejected, long nanos) {
+        this.sharpness = sharpness;
+        this.rejected = rejected;
+        sharpnessNanos = nanos;
+    }
+
+    public void addRotationNanos(long nanos) {
+        rotationNanos += nanos;
+    }
+
+    public void addBinarizationNanos(long nanos) {
+        binarizationNanos += nanos;
+    }
+
+    /**
+     * Must come before any rotation time spent outside the reader is added.
+     *
+     * @param readerNanos How long the reader took overall; what binarization and rotation
+     *  did not account for is decoding.
+     * @param format The format found, or null.
+     * @param attemptedFormats The formats the reader looked for.
+     */
+    public void decoded(long readerNanos, BarcodeFormat format, Collection<BarcodeFormat> attemptedFormats) {
+        decodeNanos = Math.max(0L, readerNanos - binarizationNanos - rotationNanos);
+        this.format = format;
+        this.attemptedFormats = attemptedFormats;
+    }
+
+    /**
+     * Called by the worker right before it sends its answer.
+     */
+    public void replySent(long nanos) {
+        replySentNanos = nanos;
+    }
+
+    /**
+     * Called on the UI thread when the answer arrives.
+     */
+    public void replyReceived(long nanos) {
+        handoffNanos = nanos - replySentNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "DecodeMetrics[worker=" + worker + ",format=" + format + ",binarizer=" + binarizer +
+                ",sharpness=" + sharpness + (rejected ? " rejected" : "") +
+                ",frameWait=" + frameWaitNanos / 1000L + "us,scoring=" + sharpnessNanos / 1000L +
+                "us,rotation=" + rotationNanos / 1000L +
+                "us,binarization=" + binarizationNanos / 1000L + "us,decode=" + decodeNanos / 1000L +
+                "us,handoff=" + handoffNanos / 1000L + "us]";
+    }
+
+}
@@ -0,0 +1,15 @@
+package zxing.library;
+
+/**
+ * Told about every preview frame a decode worker looked at, on the UI thread. Nothing is
+ * measured while no listener is set.
+ */
+public interface DecodeMetricsListener {
+
+    /**
+     * @param metrics The timings of this frame. The object is reused for the next frame.
+     * @param statistics The totals since scanning started, this frame included.
+     */
+    void onFrameDecoded(DecodeMetrics metrics, DecodeStatistics statistics);
+
+}
@@ -0,0 +1,124 @@
+package zxing.library;
+
+import com.google.zxing.BarcodeFormat;
+
+/**
+ * Running totals over the frames measured since scanning started, per {@link BarcodeFormat} and
+ * per binarizer. Only touched on the UI thread.
+ */
+public final class DecodeStatistics {
+
+    private static final int FORMATS = BarcodeFormat.values().length;
+    private static final int BINARIZERS = BinarizerStrategy.Type.values().length;
+
+    private final long[] successes = new long[FORMATS];
+    private final long[] failures = new long[FORMATS];
+    private final long[] binarizerFrames = new long[BINARIZERS];
+    private final long[] binarizerSuccesses = new long[BINARIZERS];
+    private long frames;
+    private long framesFound;
+    private long framesRejected;
+
+    /**
+     * @return How many frames were measured.
+     */
+    public long getFrameCount() {
+        return frames;
+    }
+
+    /**
+     * @return How many of them held a barcode.
+     */
+    public long getSuccessCount() {
+        return framesFound;
+    }
+
+    /**
+     * @return How many frames were not decoded because they were too blurred.
+     */
+    public long getRejectedCount() {
+        return framesRejected;
+    }
+
+    /**
+     * @return How many frames this format was found in.
+     */
+    public long getSuccessCount(BarcodeFormat format) {
+        return successes[format.ordinal()];
+    }
+
+    /**
+     * @return How many frames this format was looked for in but nothing was found.
+     */
+    public long getFailureCount(BarcodeFormat format) {
+        return failures[format.ordinal()];
+    }
+
+    /**
+     * @return How many frames this binarizer was used on.
+     */
+    public long getFrameCount(BinarizerStrategy.Type binarizer) {
+        return binarizerFrames[binarizer.ordinal()];
+    }
+
+    /**
+     * @return How many of them held a barcode.
+     */
+    public long getSuccessCount(BinarizerStrategy.Type binarizer) {
+        return binarizerSuccesses[binarizer.ordinal()];
+    }
+
+    /**
+     * @return The share of frames this binarizer was used on which held a barcode, 0 if none.
+     */
+    public double getSuccessRate(BinarizerStrategy.Type binarizer) {
+        int i = binarizer.ordinal();
+        return binarizerFrames[i] == 0 ? 0.0 : (double) binarizerSuccesses[i] / binarizerFrames[i];
+    }
+
+    public void record(DecodeMetrics metrics) {
+        frames++;
+        if (metrics.isRejected()) {
+            framesRejected++;
+            return;
+        }
+        BarcodeFormat format = metrics.getFormat();
+        BinarizerStrategy.Type binarizer = metrics.getBinarizer();
+        if (binarizer != null) {
+            binarizerFrames[binarizer.ordinal()]++;
+            if (format != null) {
+                binarizerSuccesses[binarizer.ordinal()]++;
+            }
+        }
+        if (format != null) {
+            framesFound++;
+            successes[format.ordinal()]++;
+        } else {
+            for (BarcodeFormat attempted : metrics.getAttemptedFormats()) {
+                failures[attempted.ordinal()]++;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("DecodeStatistics[frames=").append(frames)
+                .append(",found=").append(framesFound).append(",rejected=").append(framesRejected);
+        for (BarcodeFormat format : BarcodeFormat.values()) {
+            int i = format.ordinal();
+            if (successes[i] > 0 || failures[i] > 0) {
+                result.append(',').append(format).append('=').append(successes[i]).append('/')
+                        .append(successes[i] + failures[i]);
+            }
+        }
+        for (BinarizerStrategy.Type binarizer : BinarizerStrategy.Type.values()) {
+            int i = binarizer.ordinal();
+            if (binarizerFrames[i] > 0) {
+                result.append(',').append(binarizer).append('=').append(binarizerSuccesses[i]).append('/')
+                        .append(binarizerFrames[i]);
+            }
+        }
+        return result.append(']').toString();
+    }
+
+}
@@ -0,0 +1,71 @@
+package zxing.library;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Lets each barcode through once while it keeps being seen. A barcode counts as new again only
+ * after it was out of sight for longer than the window. Barcodes are told apart by format and
+ * text.
+ *
+ * <p>Thread safe, so decode workers can check what is already known before doing work for it.</p>
+ */
+public final class DuplicateFilter {
+
+    private final long windowMillis;
+    // Last time each barcode was seen, least recently seen first
+    private final Map<String, Long> lastSeen = new LinkedHashMap<String, Long>();
+
+    public DuplicateFilter(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * @param now The current time in milliseconds, from a clock which never goes back.
+     * @return true if the barcode was not seen within the window, so it should be reported.
+     */
+    public synchronized boolean add(BarcodeFormat format, String text, long now) {
+        expire(now);
+        String key = key(format, text);
+        // Removing first moves it to the end, keeping the map ordered by time
+        boolean fresh = lastSeen.remove(key) == null;
+        lastSeen.put(key, now);
+        return fresh;
+    }
+
+    /**
+     * Only looks; nothing is recorded as seen.
+     *
+     * @return true if {@link #add(BarcodeFormat, String, long)} would let at least one of the
+     *  results through.
+     */
+    public synchronized boolean anyFresh(Result[] results, long now) {
+        for (Result result : results) {
+            Long seen = lastSeen.get(key(result.getBarcodeFormat(), result.getText()));
+            if (seen == null || now - seen > windowMillis) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void clear() {
+        lastSeen.clear();
+    }
+
+    private static String key(BarcodeFormat format, String text) {
+        return format.name() + '\u0000' + text;
+    }
+
+    private void expire(long now) {
+        Iterator<Long> times = lastSeen.values().iterator();
+        while (times.hasNext() && now - times.next() > windowMillis) {
+            times.remove();
+        }
+    }
+
+}
@@ -0,0 +1,166 @@
+package zxing.library;
+
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+
+/**
+ * Remembers where the detectors last saw candidate points, so the next frames can look at a
+ * small region around them before searching the whole framing rect. Points reported while a
+ * crop or a downscaled copy is decoded are moved back into the coordinates of the whole source
+ * before they are passed on.
+ *
+ * <p>Not thread safe; each decode worker has its own.</p>
+ */
+public final class RegionTracker implements ResultPointCallback {
+
+    private final ResultPointCallback delegate;
+    private final int maxAge;
+    private int offsetX;
+    private int offsetY;
+    private int scale = 1;
+    private boolean seen;
+    private float minX;
+    private float minY;
+    private float maxX;
+    private float maxY;
+    // Frames since the region was last confirmed, or -1 while there is none
+    private int age = -1;
+    private int left;
+    private int top;
+    private int right;
+    private int bottom;
+
+    /**
+     * @param delegate Gets every point, in whole source coordinates. May be null.
+     * @param maxAge For how many frames without new points a region is still tried.
+     */
+    public RegionTracker(ResultPointCallback delegate, int maxAge) {
+        this.delegate = delegate;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Starts a frame; points from now on belong to it.
+     */
+    public void beginFrame() {
+        seen = false;
+        offsetX = 0;
+        offsetY = 0;
+        scale = 1;
+    }
+
+    /**
+     * Says where the crop which is about to be decoded lies in the whole source.
+     */
+    public void setOffset(int offsetX, int offsetY) {
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+    }
+
+    /**
+     * Says by how much the source which is about to be decoded was scaled down; 1 for not at all.
+     */
+    public void setScale(int scale) {
+        this.scale = scale;
+    }
+
+    @Override
+    public void foundPossibleResultPoint(ResultPoint point) {
+        float x = point.getX() * scale + offsetX;
+        float y = point.getY() * scale + offsetY;
+        if (seen) {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        } else {
+            seen = true;
+            minX = maxX = x;
+            minY = maxY = y;
+        }
+        if (delegate != null) {
+            delegate.foundPossibleResultPoint(isIdentity() ? point : new ResultPoint(x, y));
+        }
+    }
+
+    /**
+     * Ends a frame: the points seen in it, if any, become the region to try next.
+     *
+     * @param width The width of the whole source.
+     * @param height The height of the whole source.
+     */
+    public void endFrame(int width, int height) {
+        if (!seen) {
+            if (age >= 0 && ++age > maxAge) {
+                age = -1;
+            }
+            return;
+        }
+        // Finder patterns and 1D end points sit inside the code or on its edge, so pad
+        // generously; 1D points all lie on one row.
+        float pad = Math.max(maxX - minX, maxY - minY) / 2 + Math.min(width, height) / 8;
+        left = Math.max(0, (int) (minX - pad));
+        top = Math.max(0, (int) (minY - pad));
+        right = Math.min(width, (int) (maxX + pad) + 1);
+        bottom = Math.min(height, (int) (maxY + pad) + 1);
+        // Not worth it when the region is most of the source anyway
+        age = right > left && bottom > top && (right - left) * (bottom - top) * 4 < width * height * 3 ? 0 : -1;
+    }
+
+    /**
+     * @return Whether candidate points were seen since the frame began.
+     */
+    public boolean hasPoints() {
+        return seen;
+    }
+
+    /**
+     * @return Whether there is a region worth trying first.
+     */
+    public boolean hasRegion() {
+        return age >= 0;
+    }
+
+    public int getLeft() {
+        return left;
+    }
+
+    public int getTop() {
+        return top;
+    }
+
+    public int getWidth() {
+        return right - left;
+    }
+
+    public int getHeight() {
+        return bottom - top;
+    }
+
+    /**
+     * @return The result with its points moved from the coordinates of the current crop or
+     *  downscaled copy into those of the whole source.
+     */
+    public Result translate(Result result) {
+        ResultPoint[] points = result.getResultPoints();
+        if (isIdentity() || points == null) {
+            return result;
+        }
+        ResultPoint[] translated = new ResultPoint[points.length];
+        for (int i = 0; i < points.length; i++) {
+            ResultPoint point = points[i];
+            translated[i] = point == null
+                    ? null : new ResultPoint(point.getX() * scale + offsetX, point.getY() * scale + offsetY);
+        }
+        Result moved = new Result(result.getText(), result.getRawBytes(), translated,
+                result.getBarcodeFormat(), result.getTimestamp());
+        moved.putAllMetadata(result.getResultMetadata());
+        return moved;
+    }
+
+    private boolean isIdentity() {
+        return offsetX == 0 && offsetY == 0 && scale == 1;
+    }
+
+}
@@ -0,0 +1,66 @@
+package zxing.library;
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * Scores how sharp a frame is by its gradient energy, the mean squared difference between
+ * neighbouring pixels, on a sample of rows; a blurred or smeared frame has soft edges and scores
+ * low. What counts as blurred depends on the scene, so frames are judged against a peak which
+ * follows the recent scores and slowly decays, and a scene which really is that soft is accepted
+ * again after a while.
+ *
+ * <p>Not thread safe; each decode worker has its own.</p>
+ */
+public final class SharpnessEstimator {
+
+    // Only every this many rows and pixels are looked at
+    private static final int ROW_STEP = 8;
+    private static final int PIXEL_STEP = 2;
+    // How much the peak keeps per frame
+    private static final float PEAK_DECAY = 0.95f;
+
+    private final float rejectRatio;
+    private float peak;
+    private byte[] row;
+    private byte[] nextRow;
+
+    /**
+     * @param rejectRatio Frames scoring less than this share of the recent peak are rejected.
+     */
+    public SharpnessEstimator(float rejectRatio) {
+        this.rejectRatio = rejectRatio;
+    }
+
+    /**
+     * @return The gradient energy of the source, 0 for a flat one.
+     */
+    public float score(LuminanceSource source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        long energy = 0L;
+        int samples = 0;
+        for (int y = ROW_STEP / 2; y + 1 < height; y += ROW_STEP) {
+            row = source.getRow(y, row);
+            nextRow = source.getRow(y + 1, nextRow);
+            for (int x = 0; x + 1 < width; x += PIXEL_STEP) {
+                int pixel = row[x] & 0xff;
+                int dx = (row[x + 1] & 0xff) - pixel;
+                int dy = (nextRow[x] & 0xff) - pixel;
+                energy += dx * dx + dy * dy;
+                samples++;
+            }
+        }
+        return samples == 0 ? 0.0f : (float) energy / samples;
+    }
+
+    /**
+     * Judges a score against the recent ones, and lets it raise the peak.
+     *
+     * @return false if the frame is too blurred to be worth decoding.
+     */
+    public boolean accept(float score) {
+        peak = Math.max(score, peak * PEAK_DECAY);
+        return score >= peak * rejectRatio;
+    }
+
+}
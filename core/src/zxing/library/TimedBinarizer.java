@@ -0,0 +1,51 @@
+package zxing.library;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+/**
+ * Adds the time another binarizer spends to the binarization time of a {@link DecodeMetrics},
+ * less what reading a {@link TimedLuminanceSource} already counted as rotation.
+ */
+public final class TimedBinarizer extends Binarizer {
+
+    private final Binarizer delegate;
+    private final DecodeMetrics metrics;
+
+    public TimedBinarizer(Binarizer delegate, DecodeMetrics metrics) {
+        super(delegate.getLuminanceSource());
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public BitArray getBlackRow(int y, BitArray row) throws NotFoundException {
+        long rotation = metrics.getRotationNanos();
+        long start = System.nanoTime();
+        try {
+            return delegate.getBlackRow(y, row);
+        } finally {
+            metrics.addBinarizationNanos(System.nanoTime() - start - (metrics.getRotationNanos() - rotation));
+        }
+    }
+
+    @Override
+    public BitMatrix getBlackMatrix() throws NotFoundException {
+        long rotation = metrics.getRotationNanos();
+        long start = System.nanoTime();
+        try {
+            return delegate.getBlackMatrix();
+        } finally {
+            metrics.addBinarizationNanos(System.nanoTime() - start - (metrics.getRotationNanos() - rotation));
+        }
+    }
+
+    @Override
+    public Binarizer createBinarizer(LuminanceSource source) {
+        return new TimedBinarizer(delegate.createBinarizer(source), metrics);
+    }
+
+}
@@ -0,0 +1,56 @@
+package zxing.library;
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * Adds the time spent reading pixels out of another source to the rotation time of a
+ * {@link DecodeMetrics}.
+ */
+public final class TimedLuminanceSource extends LuminanceSource {
+
+    private final LuminanceSource delegate;
+    private final DecodeMetrics metrics;
+
+    public TimedLuminanceSource(LuminanceSource delegate, DecodeMetrics metrics) {
+        super(delegate.getWidth(), delegate.getHeight());
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        long start = System.nanoTime();
+        byte[] result = delegate.getRow(y, row);
+        metrics.addRotationNanos(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        long start = System.nanoTime();
+        byte[] result = delegate.getMatrix();
+        metrics.addRotationNanos(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return delegate.isCropSupported();
+    }
+
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+        return new TimedLuminanceSource(delegate.crop(left, top, width, height), metrics);
+    }
+
+    @Override
+    public boolean isRotateSupported() {
+        return delegate.isRotateSupported();
+    }
+
+    @Override
+    public LuminanceSource rotateCounterClockwise() {
+        return new TimedLuminanceSource(delegate.rotateCounterClockwise(), metrics);
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2014 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+import com.google.zxing.BarcodeFormat;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.EnumSet;
+
+/**
+ * Runs {@link DecodeCostPreviewPolicy} on Camera.Parameters.flatten() strings as devices report
+ * them, trimmed to the preview keys.
+ */
+public final class DecodeCostPreviewPolicyTestCase extends Assert {
+
+  // Defaults to 15 fps, like many low-end devices
+  private static final String FIFTEEN_FPS_DEVICE =
+      "preview-format=yuv420sp;preview-frame-rate=15;preview-fps-range=15000,15000;" +
+      "preview-fps-range-values=(7500,15000),(15000,15000),(7000,30000),(30000,30000);" +
+      "preview-size=640x480;preview-size-values=1280x720,800x480,720x480,640x480,352x288,320x240";
+
+  // Sizes up to 4K, mixing 16:9 and 4:3 and a 120 fps range
+  private static final String UHD_DEVICE =
+      "preview-fps-range=15000,30000;" +
+      "preview-fps-range-values=(15000,15000),(15000,30000),(30000,30000),(120000,120000);" +
+      "preview-size=1920x1080;" +
+      "preview-size-values=3840x2160,2592x1944,1920x1080,1440x1080,1280x960,1280x720,960x720," +
+      "960x540,720x480,640x480,352x288,320x240,176x144";
+
+  // An old device which lists no fps ranges at all
+  private static final String NO_FPS_RANGES_DEVICE =
+      "preview-frame-rate=30;preview-frame-rate-values=15,30;preview-size=640x480;" +
+      "preview-size-values=640x480,320x240,176x144";
+
+  @Test
+  public void testUnflatten() {
+    PreviewParameters parameters = PreviewParameters.unflatten(UHD_DEVICE);
+    assertArrayEquals(new int[] {1920, 1080}, parameters.getPreviewSize());
+    assertEquals(13, parameters.getPreviewSizes().size());
+    assertArrayEquals(new int[] {3840, 2160}, parameters.getPreviewSizes().get(0));
+    assertEquals(4, parameters.getPreviewFpsRanges().size());
+    assertArrayEquals(new int[] {15000, 15000}, parameters.getPreviewFpsRanges().get(0));
+    assertArrayEquals(new int[] {120000, 120000}, parameters.getPreviewFpsRanges().get(3));
+  }
+
+  @Test
+  public void testUnflattenSkipsMalformedValues() {
+    PreviewParameters parameters = PreviewParameters.unflatten(
+        "preview-size=bogus;preview-size-values=640x480,x,640;" +
+        "preview-fps-range-values=(15000,30000),(a,b),(30000);junk");
+    assertNull(parameters.getPreviewSize());
+    assertEquals(1, parameters.getPreviewSizes().size());
+    assertEquals(1, parameters.getPreviewFpsRanges().size());
+    assertArrayEquals(new int[] {15000, 30000}, parameters.getPreviewFpsRanges().get(0));
+  }
+
+  @Test
+  public void testFifteenFpsDefault() {
+    PreviewParameters parameters = PreviewParameters.unflatten(FIFTEEN_FPS_DEVICE);
+    DecodeCostPreviewPolicy policy = new DecodeCostPreviewPolicy(EnumSet.of(BarcodeFormat.QR_CODE));
+    // The steady 30 fps range beats the 15 fps default
+    assertArrayEquals(new int[] {30000, 30000}, policy.selectPreviewFpsRange(parameters));
+    // 800x480 is closest to the 5:3 screen and has the short side QR Code needs
+    assertArrayEquals(new int[] {800, 480}, policy.selectPreviewSize(parameters, 800, 480));
+  }
+
+  @Test
+  public void testUhdSizes() {
+    PreviewParameters parameters = PreviewParameters.unflatten(UHD_DEVICE);
+    DecodeCostPreviewPolicy qrPolicy = new DecodeCostPreviewPolicy(EnumSet.of(BarcodeFormat.QR_CODE));
+    // The smallest 16:9 size which is sharp enough, far below the screen
+    assertArrayEquals(new int[] {960, 540}, qrPolicy.selectPreviewSize(parameters, 1920, 1080));
+    // Portrait screens are judged in landscape all the same
+    assertArrayEquals(new int[] {960, 540}, qrPolicy.selectPreviewSize(parameters, 1080, 1920));
+    // 120 fps is over the cap
+    assertArrayEquals(new int[] {30000, 30000}, qrPolicy.selectPreviewFpsRange(parameters));
+
+    DecodeCostPreviewPolicy linearPolicy = new DecodeCostPreviewPolicy(
+        EnumSet.of(BarcodeFormat.QR_CODE, BarcodeFormat.CODE_128));
+    // Code 128 needs more pixels across
+    assertArrayEquals(new int[] {1280, 720}, linearPolicy.selectPreviewSize(parameters, 1920, 1080));
+    // On a 4:3 screen the 4:3 sizes are the candidates
+    assertArrayEquals(new int[] {960, 720}, linearPolicy.selectPreviewSize(parameters, 1024, 768));
+  }
+
+  @Test
+  public void testNoSizeSharpEnough() {
+    PreviewParameters parameters = PreviewParameters.unflatten(
+        "preview-size-values=320x240,176x144");
+    DecodeCostPreviewPolicy policy = new DecodeCostPreviewPolicy(EnumSet.of(BarcodeFormat.CODE_128));
+    // Gets as close as it can
+    assertArrayEquals(new int[] {320, 240}, policy.selectPreviewSize(parameters, 800, 600));
+  }
+
+  @Test
+  public void testNoFpsRanges() {
+    PreviewParameters parameters = PreviewParameters.unflatten(NO_FPS_RANGES_DEVICE);
+    assertTrue(parameters.getPreviewFpsRanges().isEmpty());
+    DecodeCostPreviewPolicy policy = new DecodeCostPreviewPolicy(EnumSet.of(BarcodeFormat.EAN_13));
+    // Keep the camera's default
+    assertNull(policy.selectPreviewFpsRange(parameters));
+    assertArrayEquals(new int[] {640, 480}, policy.selectPreviewSize(parameters, 800, 600));
+  }
+
+}
@@ -17,6 +17,7 @@
 package com.google.zxing.client.android;
 
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.net.Uri;
 import com.google.zxing.BarcodeFormat;
 
@@ -84,6 +85,32 @@ public final class DecodeFormatManager {
         return parseDecodeFormats(formats, inputUri.getQueryParameter(Intents.Scan.MODE));
     }
 
+    /**
+     * @return The formats turned on in the preferences.
+     */
+    public static Set<BarcodeFormat> fromPreferences(SharedPreferences prefs) {
+        Set<BarcodeFormat> formats = EnumSet.noneOf(BarcodeFormat.class);
+        if (prefs.getBoolean(PreferencesActivity.KEY_DECODE_1D_PRODUCT, true)) {
+            formats.addAll(PRODUCT_FORMATS);
+        }
+        if (prefs.getBoolean(PreferencesActivity.KEY_DECODE_1D_INDUSTRIAL, true)) {
+            formats.addAll(INDUSTRIAL_FORMATS);
+        }
+        if (prefs.getBoolean(PreferencesActivity.KEY_DECODE_QR, true)) {
+            formats.addAll(QR_CODE_FORMATS);
+        }
+        if (prefs.getBoolean(PreferencesActivity.KEY_DECODE_DATA_MATRIX, true)) {
+            formats.addAll(DATA_MATRIX_FORMATS);
+        }
+        if (prefs.getBoolean(PreferencesActivity.KEY_DECODE_AZTEC, false)) {
+            formats.addAll(AZTEC_FORMATS);
+        }
+        if (prefs.getBoolean(PreferencesActivity.KEY_DECODE_PDF417, false)) {
+            formats.addAll(PDF417_FORMATS);
+        }
+        return formats;
+    }
+
     private static Set<BarcodeFormat> parseDecodeFormats(Iterable<String> scanFormats, String decodeMode) {
         if (scanFormats != null) {
             Set<BarcodeFormat> formats = EnumSet.noneOf(BarcodeFormat.class);
@@ -19,16 +19,23 @@ package com.google.zxing.client.android.camera;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.hardware.Camera;
-import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import android.preference.PreferenceManager;
 import android.util.Log;
 import com.google.zxing.client.android.PreferencesActivity;
-import com.google.zxing.client.android.common.executor.AsyncTaskExecInterface;
-import com.google.zxing.client.android.common.executor.AsyncTaskExecManager;
 
 import java.util.ArrayList;
 import java.util.Collection;
 
+/**
+ * Focuses again a while after each focus finishes. The next focus is a single Runnable posted to
+ * the main looper, so nothing is allocated or blocked per cycle, and stopping or focusing right
+ * away simply replaces what was posted.
+ *
+ * <p>In the continuous focus modes the camera refocuses by itself, so nothing is timed; a
+ * {@link #focusNow()} runs one focus scan, after which continuous focusing is resumed.</p>
+ */
 final class AutoFocusManager implements Camera.AutoFocusCallback {
 
   private static final String TAG = AutoFocusManager.class.getSimpleName();
@@ -40,75 +47,119 @@ final class AutoFocusManager implements Camera.AutoFocusCallback {
     FOCUS_MODES_CALLING_AF.add(Camera.Parameters.FOCUS_MODE_AUTO);
     FOCUS_MODES_CALLING_AF.add(Camera.Parameters.FOCUS_MODE_MACRO);
   }
+  private static final Collection<String> CONTINUOUS_FOCUS_MODES;
+  static {
+    CONTINUOUS_FOCUS_MODES = new ArrayList<String>(2);
+    CONTINUOUS_FOCUS_MODES.add("continuous-picture"); // Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE in 4.0+
+    CONTINUOUS_FOCUS_MODES.add("continuous-video");   // Camera.Parameters.FOCUS_MODE_CONTINUOUS_VIDEO in 4.0+
+  }
 
   private boolean active;
+  // Whether the camera is focusing now, so it isn't asked twice
+  private boolean focusing;
+  // While decoding succeeds the timed refocus is skipped
+  private boolean suppressed;
   private final boolean useAutoFocus;
+  // The camera focuses by itself, but can be made to scan once
+  private final boolean continuousFocus;
   private final Camera camera;
-  private AutoFocusTask outstandingTask;
-  private final AsyncTaskExecInterface taskExec;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Runnable focusTask = new Runnable() {
+    @Override
+    public void run() {
+      synchronized (AutoFocusManager.this) {
+        if (active) {
+          if (suppressed) {
+            handler.postDelayed(this, AUTO_FOCUS_INTERVAL_MS);
+          } else {
+            focus();
+          }
+        }
+      }
+    }
+  };
 
-  AutoFocusManager(Context context, Camera camera) {
+  /**
+   * @param parameters What the camera is currently set to.
+   */
+  AutoFocusManager(Context context, Camera camera, Camera.Parameters parameters) {
     this.camera = camera;
-    taskExec = new AsyncTaskExecManager().build();
     SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
-    String currentFocusMode = camera.getParameters().getFocusMode();
-    useAutoFocus =
-        sharedPrefs.getBoolean(PreferencesActivity.KEY_AUTO_FOCUS, true) &&
-        FOCUS_MODES_CALLING_AF.contains(currentFocusMode);
+    String currentFocusMode = parameters.getFocusMode();
+    boolean autoFocus = sharedPrefs.getBoolean(PreferencesActivity.KEY_AUTO_FOCUS, true);
+    useAutoFocus = autoFocus && FOCUS_MODES_CALLING_AF.contains(currentFocusMode);
+    continuousFocus = autoFocus && CONTINUOUS_FOCUS_MODES.contains(currentFocusMode);
     Log.i(TAG, "Current focus mode '" + currentFocusMode + "'; use auto focus? " + useAutoFocus);
     start();
   }
 
   @Override
   public synchronized void onAutoFocus(boolean success, Camera theCamera) {
+    focusing = false;
     if (active) {
-      outstandingTask = new AutoFocusTask();
-      taskExec.execute(outstandingTask);
+      handler.removeCallbacks(focusTask);
+      handler.postDelayed(focusTask, AUTO_FOCUS_INTERVAL_MS);
+    } else if (continuousFocus) {
+      // The scan locked the focus; let the camera carry on focusing by itself
+      cancelFocus();
     }
   }
 
   synchronized void start() {
     if (useAutoFocus) {
       active = true;
-      try {
-        camera.autoFocus(this);
-      } catch (RuntimeException re) {
-        // Have heard RuntimeException reported in Android 4.0.x+; continue?
-        Log.w(TAG, "Unexpected exception while focusing", re);
-      }
+      focus();
     }
   }
 
-  synchronized void stop() {
-    if (useAutoFocus) {
-      try {
-        camera.cancelAutoFocus();
-      } catch (RuntimeException re) {
-        // Have heard RuntimeException reported in Android 4.0.x+; continue?
-        Log.w(TAG, "Unexpected exception while cancelling focusing", re);
-      }
+  /**
+   * Focuses right away instead of when the next focus is due. In a continuous focus mode, runs a
+   * single focus scan.
+   */
+  synchronized void focusNow() {
+    if (active) {
+      handler.removeCallbacks(focusTask);
+      focus();
+    } else if (continuousFocus) {
+      focus();
     }
-    if (outstandingTask != null) {
-      outstandingTask.cancel(true);
-      outstandingTask = null;
+  }
+
+  /**
+   * While set, the focus which is due is put off, but {@link #focusNow()} still focuses. Has no
+   * effect in the continuous focus modes, where no focus is ever due.
+   */
+  synchronized void setSuppressed(boolean suppressed) {
+    this.suppressed = suppressed;
+  }
+
+  synchronized void stop() {
+    handler.removeCallbacks(focusTask);
+    if (useAutoFocus || focusing) {
+      cancelFocus();
     }
+    focusing = false;
     active = false;
   }
 
-  private final class AutoFocusTask extends AsyncTask<Object,Object,Object> {
-    @Override
-    protected Object doInBackground(Object... voids) {
+  private void cancelFocus() {
+    try {
+      camera.cancelAutoFocus();
+    } catch (RuntimeException re) {
+      // Have heard RuntimeException reported in Android 4.0.x+; continue?
+      Log.w(TAG, "Unexpected exception while cancelling focusing", re);
+    }
+  }
+
+  private void focus() {
+    if (!focusing) {
       try {
-        Thread.sleep(AUTO_FOCUS_INTERVAL_MS);
-      } catch (InterruptedException e) {
-        // continue
-      }
-      synchronized (AutoFocusManager.this) {
-        if (active) {
-          start();
-        }
+        camera.autoFocus(this);
+        focusing = true;
+      } catch (RuntimeException re) {
+        // Have heard RuntimeException reported in Android 4.0.x+; continue?
+        Log.w(TAG, "Unexpected exception while focusing", re);
       }
-      return null;
     }
   }
 
@@ -42,6 +42,8 @@ import java.util.*;
 final class CameraConfigurationManager {
 
     private static final String TAG = "CameraConfiguration";
+    // Dumps whole parameter and supported value lists, enable with "adb shell setprop log.tag.CameraConfiguration DEBUG"
+    private static final boolean DEBUG = Log.isLoggable(TAG, Log.DEBUG);
 
     // This is bigger than the size of a small screen, which is still supported. The routine
     // below will still select the default (presumably 320x240) size for these. This prevents
@@ -51,6 +53,12 @@ final class CameraConfigurationManager {
     private final Activity activity;
     private Point screenResolution;
     private Point cameraResolution;
+    // Null to match the preview to the screen
+    private PreviewPolicy previewPolicy;
+    private PreviewParameters previewParameters;
+    // What the camera was last read or set to, getParameters() is a round trip to the camera service
+    private Camera parametersCamera;
+    private Camera.Parameters parameters;
 
     CameraConfigurationManager(Context context) {
         this.context = context.getApplicationContext();
@@ -61,7 +69,7 @@ final class CameraConfigurationManager {
      * Reads, one time, values from the camera that are needed by the app.
      */
     void initFromCameraParameters(Camera camera) {
-        Camera.Parameters parameters = camera.getParameters();
+        Camera.Parameters parameters = getParameters(camera);
 
         if(screenResolution == null) {
             WindowManager manager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
@@ -84,23 +92,73 @@ final class CameraConfigurationManager {
             rotatedScreen = new Point(screenResolution.y, screenResolution.x);
         }
         Log.i(TAG, "Screen resolution: " + screenResolution);
-        cameraResolution =  CameraConfigurationUtils.findBestPreviewSizeValue(parameters, rotatedScreen);
+        cameraResolution = null;
+        if (previewPolicy != null) {
+            previewParameters = PreviewParameters.unflatten(parameters.flatten());
+            int[] previewSize = previewPolicy.selectPreviewSize(previewParameters, rotatedScreen.x, rotatedScreen.y);
+            if (previewSize != null) {
+                cameraResolution = new Point(previewSize[0], previewSize[1]);
+            }
+        }
+        if (cameraResolution == null) {
+            cameraResolution = CameraConfigurationUtils.findBestPreviewSizeValue(parameters, rotatedScreen);
+        }
         Log.i(TAG, "Camera resolution: " + cameraResolution);
     }
 
-    void setDesiredCameraParameters(Camera camera, boolean safeMode) {
+    void setPreviewPolicy(PreviewPolicy previewPolicy) {
+        this.previewPolicy = previewPolicy;
+    }
+
+    /**
+     * @return The camera's parameters, read once and kept until they are set again. Changes to
+     *  them only take effect through {@link #setParameters(Camera, Camera.Parameters)}.
+     */
+    Camera.Parameters getParameters(Camera camera) {
+        if (parameters == null || parametersCamera != camera) {
+            parameters = camera.getParameters();
+            parametersCamera = camera;
+        }
+        return parameters;
+    }
+
+    /**
+     * Sets the parameters on the camera, and keeps them as what it was set to.
+     */
+    void setParameters(Camera camera, Camera.Parameters parameters) {
+        invalidateParameters();
+        camera.setParameters(parameters);
+        this.parameters = parameters;
+        parametersCamera = camera;
+    }
+
+    /**
+     * Forgets the parameters, e.g. when the camera is released or changing them failed half way.
+     */
+    void invalidateParameters() {
+        parameters = null;
+        parametersCamera = null;
+    }
+
+    /**
+     * @param focusRect Where to focus and meter, in preview frame coordinates, or null to leave
+     *  it to the camera.
+     */
+    void setDesiredCameraParameters(Camera camera, boolean safeMode, Rect focusRect) {
         int result = caculateDisplayRotation();
         camera.setDisplayOrientation(result);
 
 
-        Camera.Parameters parameters = camera.getParameters();
+        Camera.Parameters parameters = getParameters(camera);
 
         if (parameters == null) {
             Log.w(TAG, "Device error: no camera parameters are available. Proceeding without configuration.");
             return;
         }
 
-        Log.i(TAG, "Initial camera parameters: " + parameters.flatten());
+        if (DEBUG) {
+            Log.d(TAG, "Initial camera parameters: " + parameters.flatten());
+        }
 
         if (safeMode) {
             Log.w(TAG, "In camera config safe mode -- most settings will not be honored");
@@ -131,9 +189,36 @@ final class CameraConfigurationManager {
         if (focusMode != null) {
             parameters.setFocusMode(focusMode);
         }
+        if (!safeMode && focusRect != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            setFocusArea(parameters, focusRect);
+        }
+
+        if (!safeMode && previewPolicy != null && previewParameters != null) {
+            int[] fpsRange = previewPolicy.selectPreviewFpsRange(previewParameters);
+            if (fpsRange != null) {
+                Log.i(TAG, "Preview fps range: " + fpsRange[0] + "-" + fpsRange[1]);
+                parameters.setPreviewFpsRange(fpsRange[0], fpsRange[1]);
+            }
+        }
 
         parameters.setPreviewSize(cameraResolution.x, cameraResolution.y);
-        camera.setParameters(parameters);
+        setParameters(camera, parameters);
+    }
+
+    private void setFocusArea(Camera.Parameters parameters, Rect rect) {
+        // Camera areas run from -1000 to 1000 across the frame
+        Rect area = new Rect(rect.left * 2000 / cameraResolution.x - 1000,
+                rect.top * 2000 / cameraResolution.y - 1000,
+                rect.right * 2000 / cameraResolution.x - 1000,
+                rect.bottom * 2000 / cameraResolution.y - 1000);
+        List<Camera.Area> areas = Collections.singletonList(new Camera.Area(area, 1000));
+        Log.i(TAG, "Focus and metering area: " + area);
+        if (parameters.getMaxNumFocusAreas() > 0) {
+            parameters.setFocusAreas(areas);
+        }
+        if (parameters.getMaxNumMeteringAreas() > 0) {
+            parameters.setMeteringAreas(areas);
+        }
     }
 
     private int caculateDisplayRotation() {
@@ -199,9 +284,9 @@ final class CameraConfigurationManager {
   }
 
   void setTorch(Camera camera, boolean newSetting) {
-    Camera.Parameters parameters = camera.getParameters();
+    Camera.Parameters parameters = getParameters(camera);
     doSetTorch(parameters, newSetting, false);
-    camera.setParameters(parameters);
+    setParameters(camera, parameters);
     SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
     boolean currentSetting = prefs.getBoolean(PreferencesActivity.KEY_FRONT_LIGHT, false);
     if (currentSetting != newSetting) {
@@ -243,7 +328,9 @@ final class CameraConfigurationManager {
 
   private static String findSettableValue(Collection<String> supportedValues,
                                           String... desiredValues) {
-    Log.i(TAG, "Supported values: " + supportedValues);
+    if (DEBUG) {
+      Log.d(TAG, "Supported values: " + supportedValues);
+    }
     String result = null;
     if (supportedValues != null) {
       for (String desiredValue : desiredValues) {
@@ -253,7 +340,9 @@ final class CameraConfigurationManager {
         }
       }
     }
-    Log.i(TAG, "Settable value: " + result);
+    if (DEBUG) {
+      Log.d(TAG, "Settable value: " + result);
+    }
     return result;
   }
 
@@ -18,6 +18,7 @@ package com.google.zxing.client.android.camera;
 
 import android.content.Context;
 import android.content.res.Configuration;
+import android.graphics.ImageFormat;
 import android.graphics.Point;
 import android.graphics.Rect;
 import android.hardware.Camera;
@@ -27,7 +28,6 @@ import android.view.Display;
 import android.view.Surface;
 import android.view.SurfaceHolder;
 import android.view.WindowManager;
-import com.google.zxing.PlanarYUVLuminanceSource;
 import com.google.zxing.client.android.camera.open.OpenCameraManager;
 
 import java.io.IOException;
@@ -39,7 +39,7 @@ import java.io.IOException;
  *
  * @author dswitkin@google.com (Daniel Switkin)
  */
-public final class CameraManager {
+public final class CameraManager implements FrameSource {
 
   private static final String TAG = CameraManager.class.getSimpleName();
 
@@ -47,6 +47,7 @@ public final class CameraManager {
   private static final int MIN_FRAME_HEIGHT = 40;
   private static final int MAX_FRAME_WIDTH = 1200;
   private static final int MAX_FRAME_HEIGHT = 675;
+  private static final int PREVIEW_BUFFER_COUNT = 3;
 
   private final Context context;
   private final CameraConfigurationManager configManager;
@@ -58,7 +59,15 @@ public final class CameraManager {
   private boolean previewing;
   private int requestedFramingRectWidth;
   private int requestedFramingRectHeight;
+  private boolean bufferedPreview;
+  private boolean streamingPreview;
+  private int maxFramesInFlight = 1;
+  private PreviewBufferPool previewBufferPool;
+  private boolean bufferedCallbacks;
+  private boolean streamingCallbacks;
   private WindowManager windowManager;
+  // Null unless decoding drives focusing
+  private FocusFeedback focusFeedback;
   /**
    * Preview frames are delivered here, which we pass on to the registered handler. Make sure to
    * clear the handler so it will only receive one message.
@@ -101,21 +110,24 @@ public final class CameraManager {
       }
     }
 
-    Camera.Parameters parameters = theCamera.getParameters();
+    Camera.Parameters parameters = configManager.getParameters(theCamera);
     String parametersFlattened = parameters == null ? null : parameters.flatten(); // Save these, temporarily
     try {
-      configManager.setDesiredCameraParameters(theCamera, false);
+      configManager.setDesiredCameraParameters(theCamera, false,
+                                               focusFeedback == null ? null : getFramingRectInSensor());
     } catch (RuntimeException re) {
       // Driver failed
       Log.w(TAG, "Camera rejected parameters. Setting only minimal safe-mode parameters");
       Log.i(TAG, "Resetting to saved camera params: " + parametersFlattened);
       // Reset:
+      // What was kept may have been changed before the camera rejected it
+      configManager.invalidateParameters();
       if (parametersFlattened != null) {
-        parameters = theCamera.getParameters();
+        parameters = configManager.getParameters(theCamera);
         parameters.unflatten(parametersFlattened);
         try {
-          theCamera.setParameters(parameters);
-          configManager.setDesiredCameraParameters(theCamera, true);
+          configManager.setParameters(theCamera, parameters);
+          configManager.setDesiredCameraParameters(theCamera, true, null);
         } catch (RuntimeException re2) {
           // Well, darn. Give up
           Log.w(TAG, "Camera rejected even safe-mode parameters! No configuration");
@@ -136,6 +148,7 @@ public final class CameraManager {
     if (camera != null) {
       camera.release();
       camera = null;
+      configManager.invalidateParameters();
       // Make sure to clear these each time we close the camera, so that any scanning rect
       // requested by intent is forgotten.
       framingRect = null;
@@ -149,9 +162,19 @@ public final class CameraManager {
   public synchronized void startPreview() {
     Camera theCamera = camera;
     if (theCamera != null && !previewing) {
+      if (bufferedPreview) {
+        startBufferedCallbacks(theCamera);
+      }
+      if (streamingPreview) {
+        if (!bufferedCallbacks) {
+          theCamera.setPreviewCallback(previewCallback);
+        }
+        previewCallback.setStreaming(true);
+        streamingCallbacks = true;
+      }
       theCamera.startPreview();
       previewing = true;
-      autoFocusManager = new AutoFocusManager(context, camera);
+      autoFocusManager = new AutoFocusManager(context, camera, configManager.getParameters(camera));
     }
   }
 
@@ -165,11 +188,136 @@ public final class CameraManager {
     }
     if (camera != null && previewing) {
       camera.stopPreview();
-      previewCallback.setHandler(null, 0);
+      if (bufferedCallbacks) {
+        // Also drops every buffer the camera still had queued
+        camera.setPreviewCallbackWithBuffer(null);
+        previewCallback.setBufferPool(null);
+        bufferedCallbacks = false;
+      }
+      if (streamingCallbacks) {
+        camera.setPreviewCallback(null);
+        previewCallback.setStreaming(false);
+        streamingCallbacks = false;
+      }
+      previewCallback.clearListeners();
       previewing = false;
     }
   }
 
+  /**
+   * Delivers preview frames through a small pool of callback buffers rather than a fresh byte[]
+   * per frame. Takes effect the next time the preview starts. Frames received with this enabled
+   * must be handed back with {@link #releasePreviewFrame(byte[])} once decoding is done.
+   */
+  public synchronized void setBufferedPreview(boolean bufferedPreview) {
+    this.bufferedPreview = bufferedPreview;
+  }
+
+  /**
+   * Sizes the preview buffer pool so that up to the given number of frames can be out for
+   * decoding at once while the camera still has a buffer to fill.
+   */
+  public synchronized void setMaxFramesInFlight(int maxFramesInFlight) {
+    this.maxFramesInFlight = maxFramesInFlight;
+  }
+
+  /**
+   * Keeps the camera delivering frames all the time instead of once per request. The newest
+   * frame waits in a single slot until somebody requests one, and older ones are dropped, so a
+   * decoder asking for its next frame gets one straight away. Best combined with
+   * {@link #setBufferedPreview(boolean)}. Takes effect the next time the preview starts.
+   */
+  public synchronized void setStreamingPreview(boolean streamingPreview) {
+    this.streamingPreview = streamingPreview;
+  }
+
+  /**
+   * Chooses the preview size and frame rate with this policy instead of matching the screen.
+   * Takes effect when the driver is opened.
+   */
+  public synchronized void setPreviewPolicy(PreviewPolicy previewPolicy) {
+    configManager.setPreviewPolicy(previewPolicy);
+  }
+
+  /**
+   * @return How many preview frames have been handed to a decoder.
+   */
+  public long getFramesDecoded() {
+    return previewCallback.getFramesDecoded();
+  }
+
+  /**
+   * @return How many preview frames were thrown away because nobody asked for them, or a newer
+   *  one came along first.
+   */
+  public long getFramesDropped() {
+    return previewCallback.getFramesDropped();
+  }
+
+  /**
+   * Returns a frame delivered by {@link #requestPreviewFrame(Handler, int)} to the camera, so its
+   * buffer can be filled again. Does nothing for frames which did not come from the buffer pool.
+   *
+   * @param data The preview frame, which must not be touched afterwards.
+   */
+  public synchronized void releasePreviewFrame(byte[] data) {
+    if (previewBufferPool != null && previewBufferPool.checkIn(data) && camera != null && bufferedCallbacks) {
+      camera.addCallbackBuffer(data);
+    }
+  }
+
+  @Override
+  public void releaseFrame(byte[] data) {
+    releasePreviewFrame(data);
+  }
+
+  private void startBufferedCallbacks(Camera theCamera) {
+    Point cameraResolution = configManager.getCameraResolution();
+    if (cameraResolution == null) {
+      return;
+    }
+    int bitsPerPixel = ImageFormat.getBitsPerPixel(configManager.getParameters(theCamera).getPreviewFormat());
+    if (bitsPerPixel <= 0) {
+      bitsPerPixel = ImageFormat.getBitsPerPixel(ImageFormat.NV21);
+    }
+    int bufferSize = cameraResolution.x * cameraResolution.y * bitsPerPixel / 8;
+    // One buffer for the camera to fill, and one for the waiting frame when streaming
+    int bufferCount = Math.max(PREVIEW_BUFFER_COUNT, maxFramesInFlight + (streamingPreview ? 2 : 1));
+    if (previewBufferPool == null || previewBufferPool.getBufferSize() != bufferSize ||
+        previewBufferPool.getBufferCount() != bufferCount) {
+      previewBufferPool = new PreviewBufferPool(bufferCount, bufferSize);
+    }
+    previewCallback.setBufferPool(previewBufferPool);
+    theCamera.setPreviewCallbackWithBuffer(previewCallback);
+    previewBufferPool.queueAll(theCamera);
+    bufferedCallbacks = true;
+  }
+
+  /**
+   * Lets decoding drive focusing: focus right away after this many frames in a row where
+   * candidate points were seen but nothing decoded, and skip the timed refocus while decoding
+   * succeeds. The camera also focuses and meters on the framing rect. 0 turns it off. Takes
+   * effect when the driver is opened.
+   */
+  public synchronized void setFocusFeedback(int failuresBeforeFocus) {
+    focusFeedback = failuresBeforeFocus > 0 ? new FocusFeedback(failuresBeforeFocus) : null;
+  }
+
+  /**
+   * Tells how decoding a frame went, see {@link #setFocusFeedback(int)}.
+   *
+   * @param found Whether a barcode was decoded.
+   * @param candidatePoints Whether the detectors saw possible result points.
+   */
+  public synchronized void decodeFeedback(boolean found, boolean candidatePoints) {
+    if (focusFeedback != null && autoFocusManager != null) {
+      if (focusFeedback.frameDecoded(found, candidatePoints)) {
+        autoFocusManager.focusNow();
+      }
+      autoFocusManager.setSuppressed(focusFeedback.isSucceeding());
+    }
+  }
+
   /**
    * Convenience method for {@link com.google.zxing.client.android.CaptureActivity}
    */
@@ -186,18 +334,31 @@ public final class CameraManager {
   }
 
   /**
-   * A single preview frame will be returned to the handler supplied. The data will arrive as byte[]
+   * A single preview frame will be returned to the handler supplied. Several handlers may be
+   * waiting at once; each gets its own frame, in the order they asked. The data will arrive as byte[]
    * in the message.obj field, with width and height encoded as message.arg1 and message.arg2,
-   * respectively.
+   * respectively. With {@link #setBufferedPreview(boolean)} the byte[] belongs to the buffer pool
+   * and has to be released again.
    *
    * @param handler The handler to send the message to.
    * @param message The what field of the message to be sent.
    */
-  public synchronized void requestPreviewFrame(Handler handler, int message) {
+  public void requestPreviewFrame(Handler handler, int message) {
+    requestFrame(new MessageFrameListener(handler, message));
+  }
+
+  /**
+   * Like {@link #requestPreviewFrame(Handler, int)}, but the frame goes to a listener, which is
+   * called on the thread the camera delivers preview frames on.
+   */
+  @Override
+  public synchronized void requestFrame(FrameListener listener) {
     Camera theCamera = camera;
     if (theCamera != null && previewing) {
-      previewCallback.setHandler(handler, message);
-      theCamera.setOneShotPreviewCallback(previewCallback);
+      previewCallback.addListener(listener);
+      if (!bufferedCallbacks && !streamingCallbacks) {
+        theCamera.setOneShotPreviewCallback(previewCallback);
+      }
     }
   }
 
@@ -280,6 +441,20 @@ public final class CameraManager {
     return framingRectInPreview;
   }
 
+  /**
+   * Like {@link #getFramingRectInPreview} but in terms of the frame as the sensor delivers it,
+   * before the rotation for portrait.
+   */
+  private Rect getFramingRectInSensor() {
+    Rect rect = getFramingRectInPreview();
+    if (rect == null || !isPortait()) {
+      return rect;
+    }
+    // Turn the 90 degree rotation of buildLuminanceSource back
+    int dataHeight = configManager.getCameraResolution().y;
+    return new Rect(rect.top, dataHeight - rect.right, rect.bottom, dataHeight - rect.left);
+  }
+
   /**
    * Allows third party apps to specify the scanning rectangle dimensions, rather than determine
    * them automatically based on screen resolution.
@@ -305,35 +480,20 @@ public final class CameraManager {
    * @param data A preview frame.
    * @param width The width of the image.
    * @param height The height of the image.
-   * @return A PlanarYUVLuminanceSource instance.
+   * @return A RotatedYUVLuminanceSource instance, which reads the frame in place.
    */
-    public PlanarYUVLuminanceSource buildLuminanceSource(byte[] data, int width, int height) {
-        /**
-         * Hack of orientation
-         */
-        boolean isPortait = isPortait();
-
-        byte[] rotatedData = new byte[data.length];
-        if (isPortait) {
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++)
-                    rotatedData[x * height + height - y - 1] = data[x + y * width];
-            }
-            int tmp = width;
-            width = height;
-            height = tmp;
-        }
-        else {
-            rotatedData = null;
-        }
-
+    public RotatedYUVLuminanceSource buildLuminanceSource(byte[] data, int width, int height) {
         Rect rect = getFramingRectInPreview();
         if (rect == null) {
             return null;
         }
+        /**
+         * Hack of orientation
+         */
+        int rotation = isPortait() ? 90 : 0;
         // Go ahead and assume it's YUV rather than die.
-        return new PlanarYUVLuminanceSource(isPortait ? rotatedData: data, width, height, rect.left, rect.top,
-                                            rect.width(), rect.height(), false);
+        return new RotatedYUVLuminanceSource(data, width, height, rotation, rect.left, rect.top,
+                                             rect.width(), rect.height());
   }
 
     public boolean isPortait() {
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2014 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+import android.os.Handler;
+
+/**
+ * Passes each frame on to a Handler as a message, with the byte[] in message.obj and the width
+ * and height in message.arg1 and message.arg2.
+ */
+public final class MessageFrameListener implements FrameListener {
+
+  private final Handler handler;
+  private final int what;
+
+  public MessageFrameListener(Handler handler, int what) {
+    this.handler = handler;
+    this.what = what;
+  }
+
+  @Override
+  public void onFrame(byte[] data, int width, int height) {
+    handler.obtainMessage(what, width, height, data).sendToTarget();
+  }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2014 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+import android.hardware.Camera;
+
+/**
+ * A small, fixed set of preview buffers which are handed to the camera with
+ * {@link Camera#addCallbackBuffer(byte[])}. A buffer is either queued in the camera or checked
+ * out to the decoder; it goes back to the camera once the decoder checks it in again, so that
+ * steady-state scanning never allocates a frame.
+ */
+final class PreviewBufferPool {
+
+  private final byte[][] buffers;
+  private final boolean[] checkedOut;
+  private final int bufferSize;
+
+  PreviewBufferPool(int count, int bufferSize) {
+    this.buffers = new byte[count][bufferSize];
+    this.checkedOut = new boolean[count];
+    this.bufferSize = bufferSize;
+  }
+
+  int getBufferSize() {
+    return bufferSize;
+  }
+
+  int getBufferCount() {
+    return buffers.length;
+  }
+
+  /**
+   * Hands every buffer the decoder is not holding to the camera. The camera forgets its queue
+   * whenever the callback is cleared, so this is called each time the preview starts.
+   */
+  synchronized void queueAll(Camera camera) {
+    for (int i = 0; i < buffers.length; i++) {
+      if (!checkedOut[i]) {
+        camera.addCallbackBuffer(buffers[i]);
+      }
+    }
+  }
+
+  /**
+   * Marks a buffer delivered by the camera as being held by the decoder.
+   */
+  synchronized void checkOut(byte[] data) {
+    int index = indexOf(data);
+    if (index >= 0) {
+      checkedOut[index] = true;
+    }
+  }
+
+  /**
+   * @return true if the buffer belongs to this pool and was held by the decoder
+   */
+  synchronized boolean checkIn(byte[] data) {
+    int index = indexOf(data);
+    if (index >= 0 && checkedOut[index]) {
+      checkedOut[index] = false;
+      return true;
+    }
+    return false;
+  }
+
+  private int indexOf(byte[] data) {
+    for (int i = 0; i < buffers.length; i++) {
+      if (buffers[i] == data) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+}
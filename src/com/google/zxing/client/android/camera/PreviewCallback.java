@@ -18,39 +18,117 @@ package com.google.zxing.client.android.camera;
 
 import android.graphics.Point;
 import android.hardware.Camera;
-import android.os.Handler;
-import android.os.Message;
 import android.util.Log;
 
+import java.util.Arrays;
+
 final class PreviewCallback implements Camera.PreviewCallback {
 
   private static final String TAG = PreviewCallback.class.getSimpleName();
 
   private final CameraConfigurationManager configManager;
-  private Handler previewHandler;
-  private int previewMessage;
+  // Requests waiting for a frame, oldest first. Each one is answered with a single frame.
+  private FrameListener[] frameListeners = new FrameListener[1];
+  private int pendingRequests;
+  private PreviewBufferPool bufferPool;
+  private boolean streaming;
+  // In streaming mode, the newest frame nobody has asked for yet
+  private byte[] latestFrame;
+  private long framesDecoded;
+  private long framesDropped;
 
   PreviewCallback(CameraConfigurationManager configManager) {
     this.configManager = configManager;
   }
 
-  void setHandler(Handler previewHandler, int previewMessage) {
-    this.previewHandler = previewHandler;
-    this.previewMessage = previewMessage;
+  synchronized void addListener(FrameListener listener) {
+    if (latestFrame != null && dispatch(listener, latestFrame)) {
+      latestFrame = null;
+      return;
+    }
+    if (pendingRequests == frameListeners.length) {
+      frameListeners = Arrays.copyOf(frameListeners, pendingRequests * 2);
+    }
+    frameListeners[pendingRequests] = listener;
+    pendingRequests++;
+  }
+
+  synchronized void clearListeners() {
+    Arrays.fill(frameListeners, null);
+    pendingRequests = 0;
+    latestFrame = null;
+  }
+
+  /**
+   * @param bufferPool The pool frames are delivered in when the camera runs with callback
+   *  buffers, or null for one-shot callbacks.
+   */
+  synchronized void setBufferPool(PreviewBufferPool bufferPool) {
+    this.bufferPool = bufferPool;
+  }
+
+  /**
+   * @param streaming true if the camera delivers every frame, in which case the newest one is
+   *  kept until somebody asks for a frame and older ones are dropped.
+   */
+  synchronized void setStreaming(boolean streaming) {
+    this.streaming = streaming;
+  }
+
+  synchronized long getFramesDecoded() {
+    return framesDecoded;
+  }
+
+  synchronized long getFramesDropped() {
+    return framesDropped;
   }
 
   @Override
-  public void onPreviewFrame(byte[] data, Camera camera) {
-    Point cameraResolution = configManager.getCameraResolution();
-    Handler thePreviewHandler = previewHandler;
-    if (cameraResolution != null && thePreviewHandler != null) {
-      Message message = thePreviewHandler.obtainMessage(previewMessage, cameraResolution.x,
-          cameraResolution.y, data);
-      message.sendToTarget();
-      previewHandler = null;
+  public synchronized void onPreviewFrame(byte[] data, Camera camera) {
+    if (pendingRequests > 0) {
+      if (dispatch(frameListeners[0], data)) {
+        pendingRequests--;
+        System.arraycopy(frameListeners, 1, frameListeners, 0, pendingRequests);
+        frameListeners[pendingRequests] = null;
+        if (pendingRequests > 0 && bufferPool == null && !streaming) {
+          // One-shot callbacks have to be armed again for whoever is next
+          camera.setOneShotPreviewCallback(this);
+        }
+        return;
+      }
+    } else if (streaming) {
+      if (latestFrame != null) {
+        drop(latestFrame, camera);
+      }
+      latestFrame = data;
+      return;
+    }
+    if (bufferPool != null) {
+      // Nobody asked for this frame; give the buffer straight back to the camera
+      drop(data, camera);
     } else {
       Log.d(TAG, "Got preview callback, but no handler or resolution available");
     }
   }
 
+  private boolean dispatch(FrameListener listener, byte[] data) {
+    Point cameraResolution = configManager.getCameraResolution();
+    if (cameraResolution == null) {
+      return false;
+    }
+    if (bufferPool != null) {
+      bufferPool.checkOut(data);
+    }
+    framesDecoded++;
+    listener.onFrame(data, cameraResolution.x, cameraResolution.y);
+    return true;
+  }
+
+  private void drop(byte[] data, Camera camera) {
+    framesDropped++;
+    if (bufferPool != null) {
+      camera.addCallbackBuffer(data);
+    }
+  }
+
 }
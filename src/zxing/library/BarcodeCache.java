@@ -0,0 +1,188 @@
+package zxing.library;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.common.BitMatrix;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * A memory cache of generated barcodes, so that the same contents shown again (say, while a list
+ * scrolls back and forth) are neither encoded nor rendered a second time.
+ *
+ * <p>There are two tiers, both least-recently-used and bounded by size in bytes. The first holds
+ * finished Bitmaps. The optional second one holds only the encoded {@link BitMatrix}, which is a
+ * fraction of the size, so a barcode pushed out of the first tier still skips the encoder.</p>
+ */
+public final class BarcodeCache {
+
+    private final LruCache<Key, Bitmap> bitmaps;
+    private final LruCache<Key, BitMatrix> matrices;
+
+    /**
+     * @param maxBitmapBytes How many bytes of Bitmaps to keep.
+     * @param maxMatrixBytes How many bytes of encoded matrices to keep, or 0 for no second tier.
+     */
+    public BarcodeCache(int maxBitmapBytes, int maxMatrixBytes) {
+        bitmaps = new LruCache<Key, Bitmap>(maxBitmapBytes) {
+            @Override
+            protected int sizeOf(Key key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+        matrices = maxMatrixBytes <= 0 ? null : new LruCache<Key, BitMatrix>(maxMatrixBytes) {
+            @Override
+            protected int sizeOf(Key key, BitMatrix value) {
+                return (value.getWidth() + 31) / 32 * 4 * value.getHeight();
+            }
+        };
+    }
+
+    public Bitmap getBitmap(Key key) {
+        return bitmaps.get(key);
+    }
+
+    public void putBitmap(Key key, Bitmap bitmap) {
+        bitmaps.put(key, bitmap);
+    }
+
+    public BitMatrix getMatrix(Key key) {
+        return matrices == null ? null : matrices.get(key);
+    }
+
+    public void putMatrix(Key key, BitMatrix matrix) {
+        if (matrices != null) {
+            matrices.put(key, matrix);
+        }
+    }
+
+    public void evictAll() {
+        bitmaps.evictAll();
+        if (matrices != null) {
+            matrices.evictAll();
+        }
+    }
+
+    /**
+     * @return How many requests were answered with a cached Bitmap.
+     */
+    public int bitmapHitCount() {
+        return bitmaps.hitCount();
+    }
+
+    /**
+     * @return How many requests found no cached Bitmap.
+     */
+    public int bitmapMissCount() {
+        return bitmaps.missCount();
+    }
+
+    /**
+     * @return How many Bitmaps were pushed out to make room.
+     */
+    public int bitmapEvictionCount() {
+        return bitmaps.evictionCount();
+    }
+
+    /**
+     * @return How many requests missed the Bitmaps but found the encoded matrix.
+     */
+    public int matrixHitCount() {
+        return matrices == null ? 0 : matrices.hitCount();
+    }
+
+    /**
+     * @return How many requests missed both tiers and had to be encoded, 0 without a second tier.
+     */
+    public int matrixMissCount() {
+        return matrices == null ? 0 : matrices.missCount();
+    }
+
+    /**
+     * @return How many encoded matrices were pushed out to make room.
+     */
+    public int matrixEvictionCount() {
+        return matrices == null ? 0 : matrices.evictionCount();
+    }
+
+    @Override
+    public String toString() {
+        return "BarcodeCache[bitmapHits=" + bitmapHitCount() + ",bitmapMisses=" + bitmapMissCount() +
+                ",bitmapEvictions=" + bitmapEvictionCount() + ",matrixHits=" + matrixHitCount() +
+                ",matrixMisses=" + matrixMissCount() + ",matrixEvictions=" + matrixEvictionCount() + ']';
+    }
+
+    /**
+     * Everything the encoder's output depends on.
+     */
+    public static final class Key {
+
+        private final BarcodeFormat format;
+        private final String contents;
+        private final int width;
+        private final int height;
+        private final Map<EncodeHintType, ?> hints;
+        private final int hashCode;
+
+        public Key(BarcodeFormat format, String contents, int width, int height,
+                   Map<EncodeHintType, ?> hints) {
+            this.format = format;
+            this.contents = contents;
+            this.width = width;
+            this.height = height;
+            this.hints = hints == null || hints.isEmpty() ?
+                    Collections.<EncodeHintType, Object>emptyMap() :
+                    new EnumMap<EncodeHintType, Object>(hints);
+            int hash = format.hashCode();
+            hash = 31 * hash + contents.hashCode();
+            hash = 31 * hash + width;
+            hash = 31 * hash + height;
+            hash = 31 * hash + this.hints.hashCode();
+            this.hashCode = hash;
+        }
+
+        public BarcodeFormat getFormat() {
+            return format;
+        }
+
+        public String getContents() {
+            return contents;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public Map<EncodeHintType, ?> getHints() {
+            return hints;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return format == other.format && width == other.width && height == other.height &&
+                    contents.equals(other.contents) && hints.equals(other.hints);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+    }
+
+}
@@ -0,0 +1,199 @@
+package zxing.library;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.client.android.R;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates barcodes for ImageViews on a fixed pool of background threads.
+ *
+ * <p>Each ImageView remembers the request it is waiting for, so asking again for the same view
+ * (as a recycled list item does) cancels the old request and its result can never land on the
+ * wrong view. Views waiting for the same barcode share a single request.</p>
+ *
+ * <p>All methods must be called on the main thread.</p>
+ */
+public final class BarcodeGenerator {
+
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+
+    private static BarcodeGenerator defaultGenerator;
+
+    private final ThreadPoolExecutor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Requests still being worked on, so identical ones can join them
+    private final Map<BarcodeCache.Key, Request> inFlight = new HashMap<BarcodeCache.Key, Request>();
+
+    /**
+     * @param threads How many barcodes may be generated at once.
+     */
+    public BarcodeGenerator(int threads) {
+        executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new BackgroundThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return The generator {@link ZXingUtils} uses, with one thread per core.
+     */
+    public static synchronized BarcodeGenerator getDefault() {
+        if (defaultGenerator == null) {
+            defaultGenerator = new BarcodeGenerator(Runtime.getRuntime().availableProcessors());
+        }
+        return defaultGenerator;
+    }
+
+    /**
+     * Shows the barcode in the view once it is ready, sized after the view's layout params.
+     * Anything the view was waiting for before is cancelled.
+     */
+    public void generateAndSet(BarcodeFormat format, ImageView view, String contents,
+                               Map<EncodeHintType, ?> hints) {
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        BarcodeCache.Key key = new BarcodeCache.Key(format, contents, params.width, params.height, hints);
+
+        Request previous = (Request) view.getTag(R.id.barcode_request);
+        if (previous != null) {
+            if (previous.key.equals(key)) {
+                return;
+            }
+            detach(view, previous);
+        }
+
+        BarcodeCache cache = ZXingUtils.getCache();
+        Bitmap cached = cache == null ? null : cache.getBitmap(key);
+        if (cached != null) {
+            view.setImageBitmap(cached);
+            return;
+        }
+
+        Request request = inFlight.get(key);
+        if (request == null) {
+            request = new Request(key);
+            inFlight.put(key, request);
+            request.future = executor.submit(request);
+        }
+        request.views.add(view);
+        view.setTag(R.id.barcode_request, request);
+    }
+
+    /**
+     * Forgets whatever the view is waiting for. The work is cancelled too unless another view
+     * wants the same barcode.
+     */
+    public void cancel(ImageView view) {
+        Request request = (Request) view.getTag(R.id.barcode_request);
+        if (request != null) {
+            detach(view, request);
+        }
+    }
+
+    /**
+     * Cancels everything still queued. The generator can't be used afterwards.
+     */
+    public void shutdown() {
+        for (Request request : inFlight.values()) {
+            for (ImageView view : request.views) {
+                view.setTag(R.id.barcode_request, null);
+            }
+        }
+        inFlight.clear();
+        executor.shutdownNow();
+    }
+
+    private void detach(ImageView view, Request request) {
+        view.setTag(R.id.barcode_request, null);
+        request.views.remove(view);
+        if (request.views.isEmpty()) {
+            request.future.cancel(false);
+            if (inFlight.get(request.key) == request) {
+                inFlight.remove(request.key);
+            }
+        }
+    }
+
+    private final class Request implements Runnable {
+
+        private final BarcodeCache.Key key;
+        // Only touched on the main thread
+        private final List<ImageView> views = new ArrayList<ImageView>(1);
+        private Future<?> future;
+
+        Request(BarcodeCache.Key key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            Bitmap generated = null;
+            try {
+                // generateAndSet() already looked for the Bitmap
+                generated = ZXingUtils.generate(ZXingUtils.getCache(), key);
+            } finally {
+                // Even when the writer threw, e.g. on contents the format can't hold, or the
+                // request would stay in flight and the views could never ask for it again
+                final Bitmap bitmap = generated;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliver(bitmap);
+                    }
+                });
+            }
+        }
+
+        private void deliver(Bitmap bitmap) {
+            if (inFlight.get(key) == this) {
+                inFlight.remove(key);
+            }
+            for (ImageView view : views) {
+                // A view which moved on to another barcode was already detached, but be sure
+                if (view.getTag(R.id.barcode_request) == this) {
+                    view.setTag(R.id.barcode_request, null);
+                    if (bitmap != null) {
+                        view.setImageBitmap(bitmap);
+                    }
+                }
+            }
+            views.clear();
+        }
+
+    }
+
+    private static final class BackgroundThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "BarcodeGenerator #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
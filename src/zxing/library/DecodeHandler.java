@@ -21,26 +21,78 @@ import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
+import android.os.SystemClock;
 import android.util.Log;
 import com.google.zxing.*;
 import com.google.zxing.client.android.R;
-import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.client.android.camera.BinnedLuminanceSource;
+import com.google.zxing.client.android.camera.RotatedYUVLuminanceSource;
+import com.google.zxing.multi.GenericMultipleBarcodeReader;
+import com.google.zxing.multi.MultipleBarcodeReader;
 
-import java.io.ByteArrayOutputStream;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Decodes the frames sent to one {@link DecodeThread}. Every frame is answered with exactly one
+ * decode_succeeded, decode_results or decode_failed message, whose arg1 is the worker number, so
+ * the {@link FragmentHandler} knows when this worker is ready for the next frame.
+ */
 final class DecodeHandler extends Handler {
 
+  /** arg2 of decode_failed: the frame was looked at and nothing was found. */
+  static final int FRAME_FAILED = 0;
+  /** arg2 of decode_failed: the frame was not looked at. */
+  static final int FRAME_SKIPPED = 1;
+  /** arg2 of decode_failed: nothing was found, but the detectors saw candidate points. */
+  static final int FRAME_CANDIDATES = 2;
+
   private static final String TAG = DecodeHandler.class.getSimpleName();
+  // How many frames without candidate points the last region is still tried first
+  private static final int REGION_MAX_AGE = 8;
+  // Framing rects smaller than this on either side are not worth binning
+  private static final int PYRAMID_MIN_SIZE = 480;
+  // Frames less sharp than this share of the recent sharpest are skipped
+  private static final float BLURRED_RATIO = 0.35f;
 
   private final ZXingFragment activity;
-  private final MultiFormatReader multiFormatReader;
+  private final int worker;
+  private final AtomicBoolean cancelled;
+  private final DecodeMetrics metrics;
+  // Null unless scanning continuously
+  private final DuplicateFilter duplicates;
+  private final AdaptiveFormatReader formatReader;
+  private final BinarizerStrategy binarizerStrategy;
+  // Null unless blurred frames are skipped
+  private final SharpnessEstimator sharpnessEstimator;
+  private final boolean trackRegion;
+  private final boolean pyramid;
+  // Sees the candidate points of every frame, and moves them back into framing rect coordinates
+  private final RegionTracker regionTracker;
+  // Null unless scanning continuously, when every barcode in a frame is reported
+  private final MultipleBarcodeReader multipleReader;
   private boolean running = true;
 
-  DecodeHandler(ZXingFragment activity, Map<DecodeHintType,Object> hints) {
-    multiFormatReader = new MultiFormatReader();
-    multiFormatReader.setHints(hints);
+  DecodeHandler(ZXingFragment activity, int worker, AtomicBoolean cancelled, DecodeMetrics metrics,
+                DuplicateFilter duplicates, Map<DecodeHintType,Object> hints) {
+    boolean continuous = activity.isContinuousScanning();
+    // Both are skipped when scanning continuously; other barcodes may be anywhere, and small
+    trackRegion = activity.isRegionTrackingEnabled() && !continuous;
+    pyramid = activity.isPyramidEnabled() && !continuous;
+    regionTracker = new RegionTracker(
+        (ResultPointCallback) hints.get(DecodeHintType.NEED_RESULT_POINT_CALLBACK), REGION_MAX_AGE);
+    hints = new EnumMap<DecodeHintType,Object>(hints);
+    hints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, regionTracker);
+    formatReader = new AdaptiveFormatReader(hints, activity.getDemotedFormatInterval());
+    binarizerStrategy = new BinarizerStrategy(hints);
+    sharpnessEstimator = activity.isSkippingBlurredFrames() ? new SharpnessEstimator(BLURRED_RATIO) : null;
+    multipleReader = continuous ? new GenericMultipleBarcodeReader(formatReader) : null;
     this.activity = activity;
+    this.worker = worker;
+    this.cancelled = cancelled;
+    this.metrics = metrics;
+    this.duplicates = duplicates;
   }
 
   @Override
@@ -49,10 +101,19 @@ final class DecodeHandler extends Handler {
       return;
     }
     if (message.what == R.id.decode) {
+        byte[] data = (byte[]) message.obj;
         try {
-            decode((byte[]) message.obj, message.arg1, message.arg2);
+            if (cancelled.get()) {
+                // A barcode was already found; don't spend time on this frame
+                sendFailed(activity.getHandler(), FRAME_SKIPPED);
+            } else {
+                decode(data, message.arg1, message.arg2);
+            }
         } catch (IllegalArgumentException e) {
-            activity.getHandler().obtainMessage(R.id.decode_failed).sendToTarget();
+            sendFailed(activity.getHandler(), FRAME_FAILED);
+        } finally {
+            // Nothing refers to the frame any more; let the camera fill it again
+            activity.getCameraManager().releaseFrame(data);
         }
     } else if (message.what == R.id.quit) {
 		running = false;
@@ -62,7 +123,12 @@ final class DecodeHandler extends Handler {
 
   /**
    * Decode the data within the viewfinder rectangle, and time how long it took. For efficiency,
-   * reuse the same reader objects from one decode to the next.
+   * reuse the same reader objects from one decode to the next. While somebody listens for
+   * metrics, each stage is timed as well; otherwise nothing extra is allocated. With region
+   * tracking on, the area around the last candidate points is tried before the whole framing
+   * rect. In pyramid mode, a half size copy is tried before the full resolution one. When
+   * scanning continuously, every barcode in the frame is looked for instead. Frames which are
+   * clearly blurred may be skipped before any of that.
    *
    * @param data   The YUV preview frame.
    * @param width  The width of the preview frame.
@@ -70,45 +136,157 @@ final class DecodeHandler extends Handler {
    */
   private void decode(byte[] data, int width, int height) {
     long start = System.currentTimeMillis();
+    boolean measuring = activity.getDecodeMetricsListener() != null;
+    long received = 0L;
+    if (measuring) {
+      received = System.nanoTime();
+      metrics.frameReceived(received, binarizerStrategy.getType());
+    }
     Result rawResult = null;
-    PlanarYUVLuminanceSource source = activity.getCameraManager().buildLuminanceSource(data, width, height);
-    if (source != null) {
-      BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
-      try {
-        rawResult = multiFormatReader.decodeWithState(bitmap);
-      } catch (ReaderException re) {
-        // continue
-      } finally {
-        multiFormatReader.reset();
+    Result[] results = null;
+    RotatedYUVLuminanceSource source = activity.getCameraManager().buildLuminanceSource(data, width, height);
+    boolean blurred = false;
+    long built = measuring ? System.nanoTime() : 0L;
+    if (source != null && sharpnessEstimator != null) {
+      float sharpness = sharpnessEstimator.score(source);
+      blurred = !sharpnessEstimator.accept(sharpness);
+      if (measuring) {
+        metrics.sharpnessScored(sharpness, blurred, System.nanoTime() - built);
+      }
+    }
+    if (source != null && !blurred) {
+      long scored = measuring ? System.nanoTime() : 0L;
+      formatReader.beginFrame();
+      regionTracker.beginFrame();
+      if (multipleReader != null) {
+        results = decodeMultiple(source, measuring);
+        rawResult = results == null ? null : results[0];
+      } else {
+        if (trackRegion && regionTracker.hasRegion()) {
+          int left = regionTracker.getLeft();
+          int top = regionTracker.getTop();
+          regionTracker.setOffset(left, top);
+          rawResult = decode(source.crop(left, top, regionTracker.getWidth(), regionTracker.getHeight()),
+                             measuring);
+          if (rawResult != null) {
+            rawResult = regionTracker.translate(rawResult);
+          }
+          regionTracker.setOffset(0, 0);
+        }
+        if (rawResult == null && pyramid &&
+            Math.min(source.getWidth(), source.getHeight()) >= PYRAMID_MIN_SIZE) {
+          regionTracker.setScale(2);
+          rawResult = decode(new BinnedLuminanceSource(source), measuring);
+          if (rawResult != null) {
+            rawResult = regionTracker.translate(rawResult);
+          }
+          regionTracker.setScale(1);
+        }
+        if (rawResult == null) {
+          rawResult = decode(source, measuring);
+        }
+        regionTracker.endFrame(source.getWidth(), source.getHeight());
+      }
+      binarizerStrategy.frameDone(rawResult != null);
+      if (measuring) {
+        metrics.decoded(System.nanoTime() - scored, rawResult == null ? null : rawResult.getBarcodeFormat(),
+            formatReader.getLastAttemptedFormats());
+        metrics.addRotationNanos(built - received);
       }
     }
 
     Handler handler = activity.getHandler();
+    if (results != null) {
+      // Scanning continuously; the FragmentHandler filters out what it already reported
+      if (handler != null) {
+        Message message = Message.obtain(handler, R.id.decode_results, worker, 0, results);
+        // Most frames only show barcodes already reported, which need no thumbnail
+        if (activity.isResultThumbnailEnabled() &&
+            duplicates.anyFresh(results, SystemClock.elapsedRealtime())) {
+          message.setData(bundleThumbnail(source));
+        }
+        if (measuring) {
+          metrics.replySent(System.nanoTime());
+        }
+        message.sendToTarget();
+      }
+      return;
+    }
     if (rawResult != null) {
+      // Every result goes out, even while another worker's is being judged, so that each one
+      // counts towards the FragmentHandler's consensus.
       // Don't log the barcode contents for security.
       long end = System.currentTimeMillis();
       Log.d(TAG, "Found barcode in " + (end - start) + " ms");
       if (handler != null) {
-        Message message = Message.obtain(handler, R.id.decode_succeeded, rawResult);
-        Bundle bundle = new Bundle();
-        Bitmap grayscaleBitmap = toBitmap(source.renderThumbnail(), source.getThumbnailWidth(), source.getThumbnailHeight());
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        grayscaleBitmap.compress(Bitmap.CompressFormat.JPEG, 50, out);
-        bundle.putByteArray(DecodeThread.BARCODE_BITMAP, out.toByteArray());
-        message.setData(bundle);
+        Message message = Message.obtain(handler, R.id.decode_succeeded, worker, 0, rawResult);
+        if (activity.isResultThumbnailEnabled()) {
+          message.setData(bundleThumbnail(source));
+        }
+        if (measuring) {
+          metrics.replySent(System.nanoTime());
+        }
         message.sendToTarget();
       }
     } else {
-      if (handler != null) {
-        Message message = Message.obtain(handler, R.id.decode_failed);
-        message.sendToTarget();
+      if (measuring) {
+        metrics.replySent(System.nanoTime());
       }
+      sendFailed(handler, blurred ? FRAME_SKIPPED
+                          : regionTracker.hasPoints() ? FRAME_CANDIDATES : FRAME_FAILED);
+    }
+  }
+
+  private Result decode(LuminanceSource source, boolean measuring) {
+    try {
+      return formatReader.decode(binaryBitmap(source, measuring));
+    } catch (ReaderException re) {
+      return null;
+    } finally {
+      formatReader.reset();
+    }
+  }
+
+  private Result[] decodeMultiple(LuminanceSource source, boolean measuring) {
+    try {
+      return multipleReader.decodeMultiple(binaryBitmap(source, measuring));
+    } catch (ReaderException re) {
+      return null;
+    } finally {
+      formatReader.reset();
+    }
+  }
+
+  private BinaryBitmap binaryBitmap(LuminanceSource source, boolean measuring) {
+    if (measuring) {
+      return new BinaryBitmap(new TimedBinarizer(
+          binarizerStrategy.create(new TimedLuminanceSource(source, metrics)), metrics));
     }
+    return new BinaryBitmap(binarizerStrategy.create(source));
   }
 
-  private static Bitmap toBitmap(int[] pixels, int width, int height) {
+  /**
+   * @param frame What became of the frame, passed as arg2: one of the FRAME_ constants.
+   */
+  private void sendFailed(Handler handler, int frame) {
+    if (handler != null) {
+      Message message = Message.obtain(handler, R.id.decode_failed, worker, frame);
+      message.sendToTarget();
+    }
+  }
+
+  /**
+   * The message never leaves this process, so the Bitmap itself can travel in the Bundle; it
+   * doesn't need to be compressed and decoded again on the other side.
+   */
+  private static Bundle bundleThumbnail(RotatedYUVLuminanceSource source) {
+    int width = source.getThumbnailWidth();
+    int height = source.getThumbnailHeight();
     Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-    bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
-    return bitmap;
+    bitmap.setPixels(source.renderThumbnail(), 0, width, 0, 0, width, height);
+    Bundle bundle = new Bundle();
+    bundle.putParcelable(DecodeThread.BARCODE_BITMAP, bitmap);
+    bundle.putFloat(DecodeThread.BARCODE_SCALED_FACTOR, (float) width / source.getWidth());
+    return bundle;
   }
 }
@@ -20,7 +20,6 @@ import com.google.zxing.BarcodeFormat;
 import com.google.zxing.DecodeHintType;
 import com.google.zxing.ResultPointCallback;
 import com.google.zxing.client.android.DecodeFormatManager;
-import com.google.zxing.client.android.PreferencesActivity;
 
 import android.content.SharedPreferences;
 import android.os.Handler;
@@ -30,9 +29,9 @@ import android.util.Log;
 
 import java.util.Collection;
 import java.util.EnumMap;
-import java.util.EnumSet;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This thread does all the heavy lifting of decoding the images.
@@ -45,16 +44,35 @@ final class DecodeThread extends Thread {
     public static final String BARCODE_SCALED_FACTOR = "barcode_scaled_factor";
 
     private final ZXingFragment activity;
+    private final int worker;
+    private final AtomicBoolean cancelled;
+    private final DecodeMetrics metrics;
+    private final DuplicateFilter duplicates;
     private final Map<DecodeHintType,Object> hints;
     private Handler handler;
     private final CountDownLatch handlerInitLatch;
 
+    /**
+     * @param worker The number this thread tags its replies with, see {@link DecodeHandler}.
+     * @param cancelled Set while nobody wants results; frames which arrive then are skipped.
+     * @param metrics Where this thread's timings go while a {@link DecodeMetricsListener} is set.
+     * @param duplicates What was reported lately when scanning continuously, else null.
+     */
     DecodeThread(ZXingFragment fragment,
+                 int worker,
+                 AtomicBoolean cancelled,
+                 DecodeMetrics metrics,
+                 DuplicateFilter duplicates,
                  Collection<BarcodeFormat> decodeFormats,
                  String characterSet,
                  ResultPointCallback resultPointCallback) {
 
+        super("DecodeThread-" + worker);
         this.activity = fragment;
+        this.worker = worker;
+        this.cancelled = cancelled;
+        this.metrics = metrics;
+        this.duplicates = duplicates;
         handlerInitLatch = new CountDownLatch(1);
 
         hints = new EnumMap<DecodeHintType, Object>(DecodeHintType.class);
@@ -62,25 +80,7 @@ final class DecodeThread extends Thread {
         // The prefs can't change while the thread is running, so pick them up once here.
         if (decodeFormats == null || decodeFormats.isEmpty()) {
             SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(fragment.getActivity());
-            decodeFormats = EnumSet.noneOf(BarcodeFormat.class);
-            if (prefs.getBoolean(PreferencesActivity.KEY_DECODE_1D_PRODUCT, true)) {
-                decodeFormats.addAll(DecodeFormatManager.PRODUCT_FORMATS);
-            }
-            if (prefs.getBoolean(PreferencesActivity.KEY_DECODE_1D_INDUSTRIAL, true)) {
-                decodeFormats.addAll(DecodeFormatManager.INDUSTRIAL_FORMATS);
-            }
-            if (prefs.getBoolean(PreferencesActivity.KEY_DECODE_QR, true)) {
-                decodeFormats.addAll(DecodeFormatManager.QR_CODE_FORMATS);
-            }
-            if (prefs.getBoolean(PreferencesActivity.KEY_DECODE_DATA_MATRIX, true)) {
-                decodeFormats.addAll(DecodeFormatManager.DATA_MATRIX_FORMATS);
-            }
-            if (prefs.getBoolean(PreferencesActivity.KEY_DECODE_AZTEC, false)) {
-                decodeFormats.addAll(DecodeFormatManager.AZTEC_FORMATS);
-            }
-            if (prefs.getBoolean(PreferencesActivity.KEY_DECODE_PDF417, false)) {
-                decodeFormats.addAll(DecodeFormatManager.PDF417_FORMATS);
-            }
+            decodeFormats = DecodeFormatManager.fromPreferences(prefs);
         }
         hints.put(DecodeHintType.POSSIBLE_FORMATS, decodeFormats);
 
@@ -88,6 +88,11 @@ final class DecodeThread extends Thread {
             hints.put(DecodeHintType.CHARACTER_SET, characterSet);
         }
         hints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, resultPointCallback);
+        BinarizerStrategy.Type binarizer = fragment.getBinarizer();
+        if (binarizer != null) {
+            // Fixes the binarizer, see BinarizerStrategy
+            hints.put(DecodeHintType.OTHER, binarizer);
+        }
         Log.i("DecodeThread", "Hints: " + hints);
     }
 
@@ -103,7 +108,7 @@ final class DecodeThread extends Thread {
     @Override
     public void run() {
         Looper.prepare();
-        handler = new DecodeHandler(activity, hints);
+        handler = new DecodeHandler(activity, worker, cancelled, metrics, duplicates, hints);
         handlerInitLatch.countDown();
         Looper.loop();
     }
@@ -1,39 +1,80 @@
 package zxing.library;
 
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
+import android.os.SystemClock;
 import android.util.Log;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.Result;
+import com.google.zxing.ResultPointCallback;
 import com.google.zxing.client.android.R;
 import com.google.zxing.client.android.ViewfinderResultPointCallback;
 import com.google.zxing.client.android.camera.CameraManager;
+import com.google.zxing.client.android.camera.FrameListener;
+import com.google.zxing.client.android.camera.MessageFrameListener;
 
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class FragmentHandler extends Handler {
 	public static final String TAG = "zxing-dec-handler";
 
-	private final DecodeThread decodeThread;
+	private final DecodeThread[] decodeThreads;
+	// Hands each worker's frames to its DecodeHandler
+	private final FrameListener[] frameListeners;
+	// Each worker's timings for the frame it was last given
+	private final DecodeMetrics[] metrics;
+	private final DecodeStatistics statistics = new DecodeStatistics();
+	// Null unless scanning continuously; what was reported lately, shared with the workers
+	private final DuplicateFilter duplicates;
+	// Whether each worker has a frame requested or being decoded
+	private final boolean[] decoding;
+	// Set once a result is accepted, until scanning restarts
+	private final AtomicBoolean cancelled = new AtomicBoolean(true);
 	private State state;
 	private final CameraManager cameraManager;
 	private final ZXingFragment fragment;
-	private long failedCount = 1000;
+	// Decides which decoded barcodes are reported
+	private final ConsensusFilter consensus;
 	public FragmentHandler(ZXingFragment fragment,
 			Collection<BarcodeFormat> decodeFormats,
             String characterSet,
             CameraManager cameraManager) {
+		this(fragment, decodeFormats, characterSet, cameraManager, 1);
+	}
+
+	/**
+	 * @param decodeWorkers How many threads decode frames side by side, each
+	 *            with its own reader. The first one to find a barcode wins.
+	 */
+	public FragmentHandler(ZXingFragment fragment,
+			Collection<BarcodeFormat> decodeFormats,
+            String characterSet,
+            CameraManager cameraManager,
+            int decodeWorkers) {
 		this.fragment = fragment;
-		decodeThread = new DecodeThread(fragment, decodeFormats, characterSet,
-										new ViewfinderResultPointCallback(fragment.getViewfinderView()));
-		decodeThread.start();
+		consensus = new ConsensusFilter(fragment.getConsensusRequired(), fragment.getConsensusWindow());
+		duplicates = fragment.isContinuousScanning()
+				? new DuplicateFilter(fragment.getDuplicateWindow()) : null;
+		ResultPointCallback resultPointCallback = new ViewfinderResultPointCallback(fragment.getViewfinderView());
+		decodeThreads = new DecodeThread[Math.max(1, decodeWorkers)];
+		decoding = new boolean[decodeThreads.length];
+		frameListeners = new FrameListener[decodeThreads.length];
+		metrics = new DecodeMetrics[decodeThreads.length];
+		for (int i = 0; i < decodeThreads.length; i++) {
+			metrics[i] = new DecodeMetrics(i);
+			decodeThreads[i] = new DecodeThread(fragment, i, cancelled, metrics[i], duplicates, decodeFormats,
+												characterSet, resultPointCallback);
+			decodeThreads[i].start();
+			frameListeners[i] = new MessageFrameListener(decodeThreads[i].getHandler(), R.id.decode);
+		}
 		state = State.SUCCESS;
 		
 		// Start ourselves capturing previews and decoding.
 		this.cameraManager = cameraManager;
+		cameraManager.setMaxFramesInFlight(decodeThreads.length);
 		cameraManager.startPreview();
 		restartPreviewAndDecode();
 	}
@@ -48,51 +89,90 @@ public class FragmentHandler extends Handler {
 			restartPreviewAndDecode();
 		} else if (message.what == R.id.decode_succeeded) {
 			Log.d(TAG, "Got decode succeeded message");
+			workerDone(message.arg1);
+			reportMetrics(message.arg1);
+			if (state != State.PREVIEW && message.arg1 >= 0) {
+				// Scanning stopped while this frame was being decoded
+				return;
+			}
+			Result result = (Result) message.obj;
+			if (message.arg1 >= 0) {
+				cameraManager.decodeFeedback(true, true);
+			}
+			if (message.arg1 >= 0 && !consensus.offer(result.getBarcodeFormat(), result.getText())) {
+				// Not sure enough yet; keep looking
+				requestPreviewFrames();
+				return;
+			}
 			state = State.SUCCESS;
-			Bundle bundle = message.getData();
+			// The other workers' frames are no longer wanted
+			cancelled.set(true);
+			Bundle bundle = message.peekData();
+			Bitmap barcode = null;
+			float scaleFactor = 1.0f;
+			if (bundle != null) {
+				// Already a mutable Bitmap, straight from the decode thread
+				barcode = bundle.getParcelable(DecodeThread.BARCODE_BITMAP);
+				scaleFactor = bundle.getFloat(
+						DecodeThread.BARCODE_SCALED_FACTOR, 1.0f);
+			}
+			fragment.handleDecode(result, barcode, scaleFactor);
+		} else if (message.what == R.id.decode_results) {
+			workerDone(message.arg1);
+			reportMetrics(message.arg1);
+			cameraManager.decodeFeedback(true, true);
+			if (state != State.PREVIEW) {
+				return;
+			}
+			// Scanning continuously: report what is new and keep going
+			Bundle bundle = message.peekData();
 			Bitmap barcode = null;
 			float scaleFactor = 1.0f;
 			if (bundle != null) {
-				byte[] compressedBitmap = bundle
-						.getByteArray(DecodeThread.BARCODE_BITMAP);
-				if (compressedBitmap != null) {
-					barcode = BitmapFactory.decodeByteArray(compressedBitmap,
-							0, compressedBitmap.length, null);
-					// Mutable copy:
-					barcode = barcode.copy(Bitmap.Config.ARGB_8888, true);
+				barcode = bundle.getParcelable(DecodeThread.BARCODE_BITMAP);
+				scaleFactor = bundle.getFloat(
+						DecodeThread.BARCODE_SCALED_FACTOR, 1.0f);
+			}
+			long now = SystemClock.elapsedRealtime();
+			for (Result result : (Result[]) message.obj) {
+				if (duplicates.add(result.getBarcodeFormat(), result.getText(), now)) {
+					fragment.handleDecode(result, barcode, scaleFactor);
 				}
-				scaleFactor = bundle
-						.getFloat(DecodeThread.BARCODE_SCALED_FACTOR);
 			}
-            if(failedCount > 4) {
-                fragment.handleDecode((Result) message.obj, barcode, scaleFactor);
-            } else {
-                state = State.PREVIEW;
-                cameraManager.requestPreviewFrame(decodeThread.getHandler(),
-                        R.id.decode);
-            }
-            failedCount = 0;
+			requestPreviewFrames();
 		} else if (message.what == R.id.decode_failed) {
+			workerDone(message.arg1);
+			reportMetrics(message.arg1);
 			// We're decoding as fast as possible, so when one decode fails,
 			// start another.
-			state = State.PREVIEW;
-			cameraManager.requestPreviewFrame(decodeThread.getHandler(),
-					R.id.decode);
-            failedCount++;
+			if (message.arg2 != DecodeHandler.FRAME_SKIPPED) {
+				cameraManager.decodeFeedback(false, message.arg2 == DecodeHandler.FRAME_CANDIDATES);
+			}
+			if (state == State.PREVIEW) {
+				if (message.arg2 != DecodeHandler.FRAME_SKIPPED) {
+					consensus.failed();
+				}
+				requestPreviewFrames();
+			}
 		}
 	}
 
 	public void quitSynchronously() {
 		state = State.DONE;
+		cancelled.set(true);
 		cameraManager.stopPreview();
-		Message quit = Message.obtain(decodeThread.getHandler(), R.id.quit);
-		quit.sendToTarget();
-		try {
-			// Wait at most half a second; should be enough time, and onPause()
-			// will timeout quickly
-			decodeThread.join(500L);
-		} catch (InterruptedException e) {
-			// continue
+		for (DecodeThread decodeThread : decodeThreads) {
+			Message quit = Message.obtain(decodeThread.getHandler(), R.id.quit);
+			quit.sendToTarget();
+		}
+		for (DecodeThread decodeThread : decodeThreads) {
+			try {
+				// Wait at most half a second; should be enough time, and onPause()
+				// will timeout quickly
+				decodeThread.join(500L);
+			} catch (InterruptedException e) {
+				// continue
+			}
 		}
 
 		// Be absolutely sure we don't send any queued up messages
@@ -103,10 +183,41 @@ public class FragmentHandler extends Handler {
 	private void restartPreviewAndDecode() {
 		if (state == State.SUCCESS) {
 			state = State.PREVIEW;
-			cameraManager.requestPreviewFrame(decodeThread.getHandler(),
-					R.id.decode);
+			cancelled.set(false);
+			// Votes from before the last result must not count towards the next one
+			consensus.restart();
+			requestPreviewFrames();
 			fragment.drawViewfinder();
 		}
 	}
 
+	private void workerDone(int worker) {
+		if (worker >= 0 && worker < decoding.length) {
+			decoding[worker] = false;
+		}
+	}
+
+	private void reportMetrics(int worker) {
+		DecodeMetricsListener listener = fragment.getDecodeMetricsListener();
+		if (listener != null && worker >= 0 && worker < metrics.length && metrics[worker].isMeasured()) {
+			DecodeMetrics frameMetrics = metrics[worker];
+			frameMetrics.replyReceived(System.nanoTime());
+			statistics.record(frameMetrics);
+			listener.onFrameDecoded(frameMetrics, statistics);
+		}
+	}
+
+	/**
+	 * Asks the camera for one frame for every worker which is not busy.
+	 */
+	private void requestPreviewFrames() {
+		for (int i = 0; i < decodeThreads.length; i++) {
+			if (!decoding[i]) {
+				decoding[i] = true;
+				metrics[i].frameRequested(System.nanoTime());
+				cameraManager.requestFrame(frameListeners[i]);
+			}
+		}
+	}
+
 }
@@ -1,18 +1,22 @@
 package zxing.library;
 
 import android.app.AlertDialog;
+import android.content.SharedPreferences;
 import android.graphics.Bitmap;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
+import android.preference.PreferenceManager;
 import android.support.v4.app.Fragment;
 import android.util.Log;
 import android.view.*;
 import com.google.zxing.Result;
+import com.google.zxing.client.android.DecodeFormatManager;
 import com.google.zxing.client.android.FinishListener;
 import com.google.zxing.client.android.R;
 import com.google.zxing.client.android.ViewfinderView;
 import com.google.zxing.client.android.camera.CameraManager;
+import com.google.zxing.client.android.camera.DecodeCostPreviewPolicy;
 
 import java.io.IOException;
 
@@ -26,12 +30,133 @@ import java.io.IOException;
 public class ZXingFragment extends Fragment implements SurfaceHolder.Callback {
 
 	private static final String TAG = "zxing-frag";
+
+	/**
+	 * Argument (boolean, default false) which makes the camera deliver preview
+	 * frames in a small pool of reused buffers instead of a new byte[] per frame.
+	 */
+	public static final String ARG_BUFFERED_PREVIEW = "zxing.buffered_preview";
+
+	/**
+	 * Argument (int, default 1) for the number of threads decoding frames side
+	 * by side. The first one to find a barcode wins.
+	 */
+	public static final String ARG_DECODE_WORKERS = "zxing.decode_workers";
+
+	/**
+	 * Argument (boolean, default false) which keeps the camera delivering frames
+	 * all the time; decoders always get the newest one and stale ones are dropped.
+	 */
+	public static final String ARG_STREAMING_PREVIEW = "zxing.streaming_preview";
+
+	/**
+	 * Argument (boolean, default true) for whether a thumbnail of the decoded
+	 * frame is rendered and passed to the {@link DecodeCallback}. Turn it off if
+	 * the callback never looks at the Bitmap; it will then be null.
+	 */
+	public static final String ARG_RESULT_THUMBNAIL = "zxing.result_thumbnail";
+
+	/**
+	 * Argument (int, default 0) which makes each decode worker look first for
+	 * the formats it already found, and for the others only on one frame in
+	 * this many. 0 looks for every format on every frame.
+	 */
+	public static final String ARG_DEMOTED_FORMAT_INTERVAL = "zxing.demoted_format_interval";
+
+	/**
+	 * Argument (boolean, default false) which makes the decoders look at a
+	 * small region around the last candidate points first, and at the whole
+	 * framing rect only if that fails.
+	 */
+	public static final String ARG_TRACK_REGION = "zxing.track_region";
+
+	/**
+	 * Argument (boolean, default false) which keeps scanning after a barcode
+	 * is found and reports every barcode in a frame. Each one is reported once
+	 * while it stays in sight, see {@link #ARG_DUPLICATE_WINDOW}; there is no
+	 * need to call {@link #restartScanning()}.
+	 */
+	public static final String ARG_CONTINUOUS_SCANNING = "zxing.continuous_scanning";
+
+	/**
+	 * Argument (int, default 3000) for how many milliseconds a barcode must be
+	 * out of sight before it is reported again when scanning continuously.
+	 */
+	public static final String ARG_DUPLICATE_WINDOW = "zxing.duplicate_window";
+
+	/**
+	 * Argument (int, default 2) for how many of the last
+	 * {@link #ARG_CONSENSUS_WINDOW} frames must decode the same barcode before
+	 * it is reported. QR Code, Data Matrix, Aztec, PDF417 and MaxiCode carry
+	 * error correction and are reported on the first frame.
+	 */
+	public static final String ARG_CONSENSUS_REQUIRED = "zxing.consensus_required";
+
+	/**
+	 * Argument (int, default 3) for how many recent frames
+	 * {@link #ARG_CONSENSUS_REQUIRED} counts over.
+	 */
+	public static final String ARG_CONSENSUS_WINDOW = "zxing.consensus_window";
+
+	/**
+	 * Argument (boolean, default false) which makes the decoders try a copy of
+	 * the framing rect at half the resolution first, and the full resolution
+	 * only if that fails. Only large framing rects are halved.
+	 */
+	public static final String ARG_PYRAMID = "zxing.pyramid";
+
+	/**
+	 * Argument (boolean, default false) which picks the smallest preview size
+	 * that still resolves the formats being scanned for, and the highest steady
+	 * frame rate, instead of matching the preview to the screen. See
+	 * {@link DecodeCostPreviewPolicy}; other policies can be set on the
+	 * {@link CameraManager}.
+	 */
+	public static final String ARG_DECODE_COST_PREVIEW = "zxing.decode_cost_preview";
+
+	/**
+	 * Argument (String, default none) which fixes the binarizer: the name of a
+	 * {@link BinarizerStrategy.Type}, like "HYBRID" or "GLOBAL_HISTOGRAM".
+	 * Without it the cheaper global histogram one goes first when only 1D
+	 * formats are looked for, and the two take turns after failed frames.
+	 */
+	public static final String ARG_BINARIZER = "zxing.binarizer";
+
+	/**
+	 * Argument (int, default 0) which lets decoding drive focusing: focus right
+	 * away after this many frames in a row that showed candidate points but
+	 * did not decode, and skip the timed refocus while frames decode. The
+	 * camera also focuses and meters on the framing rect. 0 turns it off.
+	 * In the continuous focus modes, which most devices use, there is no timed
+	 * refocus to skip; a due focus runs one focus scan, and then the camera
+	 * goes back to focusing by itself.
+	 */
+	public static final String ARG_FOCUS_AFTER_FAILURES = "zxing.focus_after_failures";
+
+	/**
+	 * Argument (boolean, default false) which scores how sharp each frame is
+	 * and skips the ones far blurrier than the recent sharpest, instead of
+	 * decoding them. The score is in the {@link DecodeMetrics}.
+	 */
+	public static final String ARG_SKIP_BLURRED = "zxing.skip_blurred";
+
 	boolean hasSurface;
 	private CameraManager cameraManager;
 	private ViewfinderView viewfinderView;
 	private FragmentHandler handler;
 	private Result savedResultToShow;
     private boolean paused = true;
+    private volatile boolean resultThumbnail = true;
+    private volatile int demotedFormatInterval;
+    private volatile boolean regionTracking;
+    private volatile boolean pyramid;
+    private volatile BinarizerStrategy.Type binarizer;
+    private volatile boolean skipBlurred;
+    private volatile boolean continuousScanning;
+    private volatile int duplicateWindow = 3000;
+    private volatile int consensusRequired = 2;
+    private volatile int consensusWindow = 3;
+    private volatile DecodeMetricsListener decodeMetricsListener;
 
 	@Override
 	public View onCreateView(LayoutInflater inflater, ViewGroup container,
@@ -63,6 +188,28 @@ public class ZXingFragment extends Fragment implements SurfaceHolder.Callback {
 					R.id.preview_view).setVisibility(View.VISIBLE);
             // Setup camera view
             cameraManager = new CameraManager(getActivity());
+            Bundle args = getArguments();
+            if (args != null) {
+                cameraManager.setBufferedPreview(args.getBoolean(ARG_BUFFERED_PREVIEW, false));
+                cameraManager.setStreamingPreview(args.getBoolean(ARG_STREAMING_PREVIEW, false));
+                cameraManager.setFocusFeedback(args.getInt(ARG_FOCUS_AFTER_FAILURES, 0));
+                resultThumbnail = args.getBoolean(ARG_RESULT_THUMBNAIL, true);
+                demotedFormatInterval = args.getInt(ARG_DEMOTED_FORMAT_INTERVAL, 0);
+                regionTracking = args.getBoolean(ARG_TRACK_REGION, false);
+                pyramid = args.getBoolean(ARG_PYRAMID, false);
+                skipBlurred = args.getBoolean(ARG_SKIP_BLURRED, false);
+                String binarizerName = args.getString(ARG_BINARIZER);
+                binarizer = binarizerName == null ? null : BinarizerStrategy.Type.valueOf(binarizerName);
+                if (args.getBoolean(ARG_DECODE_COST_PREVIEW, false)) {
+                    SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(getActivity());
+                    cameraManager.setPreviewPolicy(
+                            new DecodeCostPreviewPolicy(DecodeFormatManager.fromPreferences(prefs)));
+                }
+                continuousScanning = args.getBoolean(ARG_CONTINUOUS_SCANNING, false);
+                duplicateWindow = args.getInt(ARG_DUPLICATE_WINDOW, 3000);
+                consensusRequired = args.getInt(ARG_CONSENSUS_REQUIRED, 2);
+                consensusWindow = args.getInt(ARG_CONSENSUS_WINDOW, 3);
+            }
             //setManualFramingRect没有效果
             //cameraManager.setManualFramingRect(getView().getWidth(), getView().getHeight());
 
@@ -128,8 +275,10 @@ public class ZXingFragment extends Fragment implements SurfaceHolder.Callback {
 			// Creating the handler starts the preview, which can also throw a
 			// RuntimeException.
 			if (handler == null) {
-				// TODO: Replace with getArguments()... for custom setups
-				handler = new FragmentHandler(this, null, null, cameraManager);
+				// TODO: Take the formats and character set from getArguments() as well
+				Bundle args = getArguments();
+				int decodeWorkers = args == null ? 1 : args.getInt(ARG_DECODE_WORKERS, 1);
+				handler = new FragmentHandler(this, null, null, cameraManager, decodeWorkers);
 			}
 			decodeOrStoreSavedBitmap(null, null);
 		} catch (IOException ioe) {
@@ -152,8 +301,9 @@ public class ZXingFragment extends Fragment implements SurfaceHolder.Callback {
 				savedResultToShow = result;
 			}
 			if (savedResultToShow != null) {
+				// arg1 of -1: this result did not come from a decode worker
 				Message message = Message.obtain(handler,
-						R.id.decode_succeeded, savedResultToShow);
+						R.id.decode_succeeded, -1, 0, savedResultToShow);
 				handler.sendMessage(message);
 			}
 			savedResultToShow = null;
@@ -203,6 +353,58 @@ public class ZXingFragment extends Fragment implements SurfaceHolder.Callback {
 		return cameraManager;
 	}
 
+	boolean isResultThumbnailEnabled() {
+		return resultThumbnail;
+	}
+
+	int getDemotedFormatInterval() {
+		return demotedFormatInterval;
+	}
+
+	boolean isRegionTrackingEnabled() {
+		return regionTracking;
+	}
+
+	boolean isPyramidEnabled() {
+		return pyramid;
+	}
+
+	BinarizerStrategy.Type getBinarizer() {
+		return binarizer;
+	}
+
+	boolean isSkippingBlurredFrames() {
+		return skipBlurred;
+	}
+
+	boolean isContinuousScanning() {
+		return continuousScanning;
+	}
+
+	int getDuplicateWindow() {
+		return duplicateWindow;
+	}
+
+	int getConsensusRequired() {
+		return consensusRequired;
+	}
+
+	int getConsensusWindow() {
+		return consensusWindow;
+	}
+
+	/**
+	 * Reports how long each stage took for every frame decoded, and how often
+	 * each format was found, on the UI thread. Null stops the measuring.
+	 */
+	public void setDecodeMetricsListener(DecodeMetricsListener listener) {
+		this.decodeMetricsListener = listener;
+	}
+
+	public DecodeMetricsListener getDecodeMetricsListener() {
+		return decodeMetricsListener;
+	}
+
     public void setTorch(boolean newSetting) {
         if(cameraManager != null) {
             cameraManager.setTorch(newSetting);
@@ -1,148 +1,128 @@
 package zxing.library;
 
 import android.graphics.Bitmap;
-import android.graphics.Color;
-import android.os.AsyncTask;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import com.google.zxing.BarcodeFormat;
-import com.google.zxing.Writer;
+import com.google.zxing.EncodeHintType;
 import com.google.zxing.WriterException;
 import com.google.zxing.common.BitMatrix;
-import com.google.zxing.oned.*;
-import com.google.zxing.pdf417.PDF417Writer;
-import com.google.zxing.qrcode.QRCodeWriter;
+
+import java.util.Map;
 
 /**
  * Created by rusfearuth on 2/21/14.
  */
 public class ZXingUtils
 {
+    private static volatile BarcodeCache cache = new BarcodeCache(
+            (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 16), 1024 * 1024);
+
+    /**
+     * Replaces the cache generated barcodes are kept in; null turns caching off. By default up
+     * to 1/16th of the heap is used for Bitmaps, plus 1MB of encoded matrices.
+     */
+    public static void setCache(BarcodeCache aCache)
+    {
+        cache = aCache;
+    }
+
+    public static BarcodeCache getCache()
+    {
+        return cache;
+    }
+
     public static void generateAndSet(final BarcodeFormat aFormat, final ImageView aView, final String aBarCode)
     {
-        Bitmap barCodeImage = null;
-        Writer codeWriter = null;
-        ViewGroup.LayoutParams params = aView.getLayoutParams();
+        generateAndSet(aFormat, aView, aBarCode, null);
+    }
 
-        switch (aFormat)
+    public static void generateAndSet(final BarcodeFormat aFormat, final ImageView aView, final String aBarCode,
+                                      final Map<EncodeHintType, ?> aHints)
+    {
+        ViewGroup.LayoutParams params = aView.getLayoutParams();
+        Bitmap barCodeImage = generate(aFormat, aBarCode, params.width, params.height, aHints);
+        if (barCodeImage != null)
         {
-            case QR_CODE:
-                codeWriter = new QRCodeWriter();
-                break;
-            case CODE_128:
-                codeWriter = new Code128Writer();
-                break;
-            case CODE_39:
-                codeWriter = new Code39Writer();
-                break;
-            case PDF_417:
-                codeWriter = new PDF417Writer();
-                break;
-            case EAN_8:
-                codeWriter = new EAN8Writer();
-                break;
-            case EAN_13:
-                codeWriter = new EAN13Writer();
-                break;
-            case UPC_A:
-                codeWriter = new UPCAWriter();
-                break;
+            aView.setImageBitmap(barCodeImage);
         }
+    }
 
-        if (codeWriter != null)
-        {
-            try
-            {
-                BitMatrix bm = codeWriter.encode(aBarCode, aFormat, params.width, params.height);
-                barCodeImage = Bitmap.createBitmap(params.width, params.height, Bitmap.Config.ARGB_8888);
+    public static void generateAndSetAsync(final BarcodeFormat aFormat, final ImageView aView, final String aBarCode)
+    {
+        generateAndSetAsync(aFormat, aView, aBarCode, null);
+    }
 
-                for (int i = 0; i < params.width; i++)
-                {
-                    for (int j = 0; j < params.height; j++)
-                    {
+    /**
+     * Generates the barcode on {@link BarcodeGenerator#getDefault()}. A request made earlier for
+     * the same view is cancelled, so this is safe to call from an adapter's getView().
+     */
+    public static void generateAndSetAsync(final BarcodeFormat aFormat, final ImageView aView, final String aBarCode,
+                                           final Map<EncodeHintType, ?> aHints)
+    {
+        BarcodeGenerator.getDefault().generateAndSet(aFormat, aView, aBarCode, aHints);
+    }
 
-                        barCodeImage.setPixel(i, j, bm.get(i, j) ? Color.BLACK : Color.WHITE);
-                    }
-                }
-            } catch (WriterException e)
-            {
-                e.printStackTrace();
-            }
-            if (barCodeImage != null)
+    /**
+     * Encodes the contents and renders them in one go, or takes them from the cache. The image is
+     * only black and white, so RGB_565 holds it in half the memory of ARGB_8888.
+     *
+     * @return The barcode, or null if the format is not supported or the contents can't be encoded.
+     */
+    static Bitmap generate(BarcodeFormat aFormat, String aBarCode, int aWidth, int aHeight,
+                           Map<EncodeHintType, ?> aHints)
+    {
+        BarcodeCache theCache = cache;
+        BarcodeCache.Key key = new BarcodeCache.Key(aFormat, aBarCode, aWidth, aHeight, aHints);
+        if (theCache != null)
+        {
+            Bitmap cached = theCache.getBitmap(key);
+            if (cached != null)
             {
-                aView.setImageBitmap(barCodeImage);
+                return cached;
             }
         }
+        return generate(theCache, key);
     }
 
-    public static void generateAndSetAsync(final BarcodeFormat aFormat, final ImageView aView, final String aBarCode)
+    /**
+     * Encodes and renders a barcode the cache's Bitmaps were already searched for, so that each
+     * request is only counted once there.
+     *
+     * @param aCache Where the result goes, or null.
+     */
+    static Bitmap generate(BarcodeCache aCache, BarcodeCache.Key aKey)
     {
-        final ViewGroup.LayoutParams viewParams = aView.getLayoutParams();
-
-        new AsyncTask<Void, Void, Bitmap>()
+        BarcodeFormat format = aKey.getFormat();
+        if (!BarcodeEncoder.isSupported(format))
         {
-
-            @Override
-            protected Bitmap doInBackground(Void... params)
+            return null;
+        }
+        try
+        {
+            BitMatrix bm = aCache == null ? null : aCache.getMatrix(aKey);
+            if (bm == null)
             {
-                com.google.zxing.Writer codeWriter = null;
-                switch (aFormat)
+                bm = BarcodeEncoder.encode(format, aKey.getContents(), aKey.getWidth(), aKey.getHeight(),
+                        aKey.getHints());
+                if (aCache != null)
                 {
-                    case QR_CODE:
-                        codeWriter = new QRCodeWriter();
-                        break;
-                    case CODE_128:
-                        codeWriter = new Code128Writer();
-                        break;
-                    case CODE_39:
-                        codeWriter = new Code39Writer();
-                        break;
-                    case PDF_417:
-                        codeWriter = new PDF417Writer();
-                        break;
-                    case EAN_8:
-                        codeWriter = new EAN8Writer();
-                        break;
-                    case EAN_13:
-                        codeWriter = new EAN13Writer();
-                        break;
-                    case UPC_A:
-                        codeWriter = new UPCAWriter();
-                        break;
+                    aCache.putMatrix(aKey, bm);
                 }
-                Bitmap barCodeImage = null;
-                if (codeWriter != null)
-                {
-
-                    try
-                    {
-                        BitMatrix bm = codeWriter.encode(aBarCode, aFormat, viewParams.width, viewParams.height);
-                        barCodeImage = Bitmap.createBitmap(viewParams.width, viewParams.height, Bitmap.Config.ARGB_8888);
-
-                        for (int i = 0; i < viewParams.width; i++)
-                        {
-                            for (int j = 0; j < viewParams.height; j++)
-                            {
-
-                                barCodeImage.setPixel(i, j, bm.get(i, j) ? Color.BLACK : Color.WHITE);
-                            }
-                        }
-                    } catch (WriterException e)
-                    {
-                        e.printStackTrace();
-                    }
-                }
-                return barCodeImage;
             }
-
-            @Override
-            protected void onPostExecute(Bitmap bitmap)
+            int width = bm.getWidth();
+            int height = bm.getHeight();
+            Bitmap barCodeImage = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+            barCodeImage.setPixels(BitMatrixRenderer.render(bm, null), 0, width, 0, 0, width, height);
+            if (aCache != null)
             {
-                if (bitmap != null)
-                {
-                    aView.setImageBitmap(bitmap);
-                }
+                aCache.putBitmap(aKey, barCodeImage);
             }
-        }.execute();
+            return barCodeImage;
+        } catch (WriterException e)
+        {
+            e.printStackTrace();
+            return null;
+        }
     }
 }